@@ -0,0 +1,15 @@
+package com.vonhof.babelshark;
+
+import java.io.IOException;
+
+/**
+ * Object reader that can be fed its input in chunks as they arrive - without blocking for more input
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public interface AsyncObjectReader extends ObjectReader {
+    /**
+     * Open reader that is fed input in chunks
+     * @return
+     */
+    public SharkAsyncReader openAsync() throws IOException;
+}
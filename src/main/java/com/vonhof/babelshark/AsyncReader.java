@@ -0,0 +1,99 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.node.SharkNode;
+import com.vonhof.babelshark.node.SharkType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads a single value from input that is fed in chunks as it arrives - e.g. from an event loop. Feeding never
+ * blocks and never throws - the result future completes with the value once the input has been read, or
+ * exceptionally if the input could not be read. Input fed after the value is complete is ignored.
+ *
+ * Created by {@link BabelSharkInstance#readAsync(String, SharkType)}
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class AsyncReader<T> {
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private final BabelSharkInstance bs;
+    private final SharkAsyncReader reader;
+    private final SharkType<T, ?> type;
+    private final CompletableFuture<T> result = new CompletableFuture<T>();
+    //Used to copy chunks from direct buffers
+    private byte[] copyBuffer;
+
+    AsyncReader(BabelSharkInstance bs, SharkAsyncReader reader, SharkType<T, ?> type) {
+        this.bs = bs;
+        this.reader = reader;
+        this.type = type;
+    }
+
+    public CompletableFuture<T> getResult() {
+        return result;
+    }
+
+    public void feed(byte[] data) {
+        feed(data, 0, data.length);
+    }
+
+    public void feed(byte[] data, int offset, int length) {
+        if (result.isDone())
+            return;
+        try {
+            complete(reader.feed(data, offset, length));
+        } catch (Throwable ex) {
+            fail(ex);
+        }
+    }
+
+    /**
+     * Feed the remaining bytes of chunk. The position of the chunk is moved to its limit.
+     * @param chunk
+     */
+    public void feed(ByteBuffer chunk) {
+        if (chunk.hasArray()) {
+            feed(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+            chunk.position(chunk.limit());
+            return;
+        }
+        if (copyBuffer == null)
+            copyBuffer = new byte[COPY_BUFFER_SIZE];
+        while (chunk.hasRemaining() && !result.isDone()) {
+            int length = Math.min(chunk.remaining(), copyBuffer.length);
+            chunk.get(copyBuffer, 0, length);
+            feed(copyBuffer, 0, length);
+        }
+        chunk.position(chunk.limit());
+    }
+
+    /**
+     * Signal that all input has been fed
+     */
+    public void endOfInput() {
+        if (result.isDone())
+            return;
+        try {
+            complete(reader.endOfInput());
+        } catch (Throwable ex) {
+            fail(ex);
+        }
+    }
+
+    private void complete(SharkNode node) throws IOException {
+        if (node == null)
+            return;
+        reader.close();
+        result.complete(bs.read(node, type));
+    }
+
+    private void fail(Throwable ex) {
+        try {
+            reader.close();
+        } catch (IOException closeEx) {
+            ex.addSuppressed(closeEx);
+        }
+        result.completeExceptionally(ex);
+    }
+}
@@ -45,6 +45,10 @@ public class BabelShark {
     }
     
 
+    public static void evict(ClassLoader classLoader) {
+        instance.evict(classLoader);
+    }
+
     public static String getDefaultType() {
         return instance.getDefaultType();
     }
@@ -101,9 +105,29 @@ public class BabelShark {
         return instance.readAsMap(node, clz);
     }
 
+    public static <T> RecordIterator<T> readIterator(Input input, SharkType<T, ?> type) throws MappingException, IOException {
+        return instance.readIterator(input, type);
+    }
+
+    public static <T> RecordIterator<T> readIterator(Input input, Class<T> clz) throws MappingException, IOException {
+        return instance.readIterator(input, clz);
+    }
+
+    public static <T> RecordIterator<T> readIterator(Input input, String path, SharkType<T, ?> type) throws MappingException, IOException {
+        return instance.readIterator(input, path, type);
+    }
+
+    public static <T> RecordIterator<T> readIterator(Input input, String path, Class<T> clz) throws MappingException, IOException {
+        return instance.readIterator(input, path, clz);
+    }
+
     public static void write(Output output, Object value) throws MappingException, IOException {
         instance.write(output, value);
     }
+
+    public static <T> RecordWriter<T> openRecordWriter(Output output) throws MappingException, IOException {
+        return instance.openRecordWriter(output);
+    }
     
     public static String writeToString(Object value) throws MappingException, IOException {
         return writeToString(value, getDefaultType());
@@ -8,15 +8,26 @@ import com.vonhof.babelshark.node.SharkNode;
 import com.vonhof.babelshark.node.SharkType;
 import com.vonhof.babelshark.node.ValueNode;
 import com.vonhof.babelshark.reflect.ClassInfo;
+import com.fasterxml.jackson.core.io.SegmentedStringWriter;
+import com.fasterxml.jackson.core.util.BufferRecyclers;
+import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 /**
  * Singleton instance of the babelshark engine
@@ -26,14 +37,42 @@ import java.util.*;
 public final class BabelSharkInstance {
     private final static Logger log = LogManager.getLogger(BabelSharkInstance.class);
 
-    private SharkLanguage defaultLanguage;
-    private final Map<String, SharkLanguage> languages = new HashMap<>();
-    private final Map<String, ObjectReader> readers = new HashMap<String, ObjectReader>();
-    private final Map<String, ObjectWriter> writers = new HashMap<String, ObjectWriter>();
+    //Max number of raw content types remembered per registered language snapshot
+    private final static int MAX_CACHED_CONTENT_TYPES = 256;
+
+    public final static int DEFAULT_PARALLEL_THRESHOLD = 1024;
+
+    //Max size of output buffers kept for reuse
+    private final static int MAX_POOLED_BUFFER_SIZE = 1 << 20;
+
+    //Primitive types that can be written directly - and their boxed types
+    private final static Class[][] PRIMITIVE_TYPES = {
+        {boolean.class, Boolean.class},
+        {byte.class, Byte.class},
+        {short.class, Short.class},
+        {int.class, Integer.class},
+        {long.class, Long.class},
+        {double.class, Double.class}
+    };
+
+    //Reusable output buffer per thread - segmented, so growing it never copies what has been written
+    private final static ThreadLocal<ByteArrayOutputStream> outputBuffers = new ThreadLocal<ByteArrayOutputStream>();
+
+    //Replaced as a whole when languages are registered - so lookups never lock
+    private volatile Languages registered = new Languages();
     private final TypeRegistry<SharkSerializer> serializers = new TypeRegistry<SharkSerializer>();
     private final TypeRegistry<SharkDeserializer> deserializers = new TypeRegistry<SharkDeserializer>();
 
+    private final ConcurrentMap<Class, SharkSerializer> compiledSerializers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class, SharkDeserializer> compiledDeserializers = new ConcurrentHashMap<>();
+
     private boolean throwOnInvalidMapping = true;
+    private boolean compileBeans = false;
+    private volatile SymbolTable symbolTable = new SymbolTable();
+    private volatile ForkJoinPool parallelPool;
+    private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    //Primitive types written by the simple converter - replaced when converters are registered
+    private volatile Set<Class> directTypes = Collections.emptySet();
     
     public BabelSharkInstance() {
         registerSimple(new SimpleConverter());
@@ -42,6 +81,20 @@ public final class BabelSharkInstance {
         register(Object.class, new BeanConverter());
         register(Enum.class, new EnumConverter());
         register(BeanMap.class, new BeanMapConverter());
+        registerProviders();
+    }
+
+    /**
+     * Register converters from all providers found on the class path
+     */
+    private void registerProviders() {
+        try {
+            for(SharkConverterProvider provider : ServiceLoader.load(SharkConverterProvider.class)) {
+                provider.register(this);
+            }
+        } catch (ServiceConfigurationError ex) {
+            log.warn("Failed to load converter providers", ex);
+        }
     }
 
     public boolean doThrowOnInvalidMapping() {
@@ -52,6 +105,75 @@ public final class BabelSharkInstance {
         this.throwOnInvalidMapping = throwOnInvalidMapping;
     }
 
+    public boolean doCompileBeans() {
+        return compileBeans;
+    }
+
+    /**
+     * When enabled bean classes get their own converter the first time they are used - with fields and child 
+     * converters resolved up front. Beans that can not be compiled use the regular bean converter.
+     * @param compileBeans 
+     */
+    public void setCompileBeans(boolean compileBeans) {
+        this.compileBeans = compileBeans;
+        clearCompiled();
+    }
+
+    public ForkJoinPool getParallelPool() {
+        return parallelPool;
+    }
+
+    /**
+     * When set collections, arrays and maps with more elements than the parallel threshold are written to nodes 
+     * in parallel using the given pool. Streamed output writes those nodes in order once they are all done. 
+     * Set to null (the default) to always write sequentially.
+     * @param parallelPool 
+     */
+    public void setParallelPool(ForkJoinPool parallelPool) {
+        this.parallelPool = parallelPool;
+    }
+
+    /**
+     * Get the pool to use for writing the given number of elements in parallel - or null if they should be 
+     * written sequentially
+     * @param size
+     * @return 
+     */
+    public ForkJoinPool getParallelPool(int size) {
+        return size > parallelThreshold ? parallelPool : null;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Max number of elements written sequentially - larger collections are split into parallel tasks
+     * @param parallelThreshold 
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 1)
+            throw new IllegalArgumentException("Parallel threshold must be positive: " + parallelThreshold);
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * Set the symbol table used by the registered languages to canonicalize field names while reading. 
+     * Set to null to use field names as read.
+     * @param symbolTable 
+     */
+    public synchronized void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+        for(SharkLanguage language : registered.languages.values()) {
+            if (language instanceof SharkLanguageBase)
+                ((SharkLanguageBase) language).setSymbolTable(symbolTable);
+        }
+    }
+
     public void reportError(String error) {
         if (doThrowOnInvalidMapping()) {
             throw new MappingException(error);
@@ -64,9 +186,14 @@ public final class BabelSharkInstance {
         register(language, false);
     }
 
-    public void register(SharkLanguage language, boolean useAsDefault) {
+    public synchronized void register(SharkLanguage language, boolean useAsDefault) {
         final ObjectReader reader = language.getObjectReader();
         final ObjectWriter writer = language.getObjectWriter();
+        final Languages current = registered;
+        final Map<String, SharkLanguage> languages = new HashMap<>(current.languages);
+        final Map<String, ObjectReader> readers = new HashMap<>(current.readers);
+        final Map<String, ObjectWriter> writers = new HashMap<>(current.writers);
+        SharkLanguage defaultLanguage = current.defaultLanguage;
 
         for (String contentType : reader.getContentTypes()) {
             contentType = normalizeContentType(contentType);
@@ -79,10 +206,14 @@ public final class BabelSharkInstance {
         writers.put(language.getId(), writer);
 
         languages.put(language.getId(), language);
+        if (language instanceof SharkLanguageBase)
+            ((SharkLanguageBase) language).setSymbolTable(symbolTable);
 
         if (defaultLanguage == null || useAsDefault) {
             defaultLanguage = language;
         }
+
+        registered = new Languages(defaultLanguage, languages, readers, writers);
     }
     
     public <T> void registerSimple(SharkConverter<T> converter) {
@@ -131,47 +262,337 @@ public final class BabelSharkInstance {
     public <T> void register(SharkType type,SharkConverter<T> converter) {
         serializers.put(type, converter);
         deserializers.put(type, converter);
+        clearCompiled();
     }
     public <T> void register(SharkType type,SharkSerializer<T> converter) {
         serializers.put(type, converter);
+        clearCompiled();
     }
     
     public <T> void register(SharkType type,SharkDeserializer converter) {
         deserializers.put(type, converter);
+        clearCompiled();
+    }
+
+    /**
+     * Get the serializer used for values of type
+     * @param type
+     * @return the serializer or null if none was found
+     */
+    public SharkSerializer getSerializer(Class type) {
+        SharkSerializer converter = serializers.get(SharkType.get(type));
+        if (!compileBeans || !(converter instanceof BeanConverter))
+            return converter;
+        
+        SharkSerializer compiled = compiledSerializers.get(type);
+        if (compiled == null) {
+            compiled = ((BeanConverter) converter).compile(this, type);
+            SharkSerializer existing = compiledSerializers.putIfAbsent(type, compiled);
+            if (existing != null)
+                compiled = existing;
+        }
+        return compiled;
+    }
+
+    /**
+     * Get the deserializer used for values of type
+     * @param type
+     * @return the deserializer or null if none was found
+     */
+    public SharkDeserializer getDeserializer(SharkType type) {
+        SharkDeserializer converter = deserializers.get(type);
+        if (!compileBeans || !(converter instanceof BeanConverter))
+            return converter;
+        
+        Class clz = type.getType();
+        SharkDeserializer compiled = compiledDeserializers.get(clz);
+        if (compiled == null) {
+            compiled = ((BeanConverter) converter).compile(this, clz);
+            SharkDeserializer existing = compiledDeserializers.putIfAbsent(clz, compiled);
+            if (existing != null)
+                compiled = existing;
+        }
+        return compiled;
+    }
+
+    /**
+     * Forget everything cached for classes loaded by classLoader - e.g. when redeploying. Converters registered for
+     * those classes are kept.
+     * @param classLoader 
+     */
+    public void evict(ClassLoader classLoader) {
+        serializers.clearResolved();
+        deserializers.clearResolved();
+        evict(compiledSerializers, classLoader);
+        evict(compiledDeserializers, classLoader);
+        
+        Set<BeanConverter> beanConverters = Collections.newSetFromMap(new IdentityHashMap<BeanConverter, Boolean>());
+        for(Object converter:serializers.getValues()) {
+            if (converter instanceof BeanConverter)
+                beanConverters.add((BeanConverter) converter);
+        }
+        for(Object converter:deserializers.getValues()) {
+            if (converter instanceof BeanConverter)
+                beanConverters.add((BeanConverter) converter);
+        }
+        for(BeanConverter converter:beanConverters) {
+            converter.evict(classLoader);
+        }
+    }
+    
+    private static void evict(ConcurrentMap<Class, ?> cache, ClassLoader classLoader) {
+        for(Class type:cache.keySet()) {
+            if (type.getClassLoader() == classLoader)
+                cache.remove(type);
+        }
+    }
+
+    private void clearCompiled() {
+        compiledSerializers.clear();
+        compiledDeserializers.clear();
+        directTypes = resolveDirectTypes();
+    }
+
+    private Set<Class> resolveDirectTypes() {
+        Set<Class> out = new HashSet<Class>();
+        for(Class[] types:PRIMITIVE_TYPES) {
+            //Node output writes the boxed values - so that is the serializer that must be the simple converter
+            SharkSerializer converter = serializers.get(SharkType.get(types[1]));
+            if (converter != null && converter.getClass() == SimpleConverter.class)
+                out.add(types[0]);
+        }
+        return Collections.unmodifiableSet(out);
+    }
+
+    /**
+     * Get the primitive types whose values are written by the built-in simple converter - and so can be written 
+     * directly without boxing them. A new set is returned after converters have been registered.
+     * @return 
+     * @see DirectFields
+     */
+    public Set<Class> getDirectTypes() {
+        return directTypes;
     }
 
     public String getDefaultType() {
-        if (defaultLanguage != null) {
-            return defaultLanguage.getId();
+        final Languages current = registered;
+        if (current.defaultLanguage != null) {
+            return current.defaultLanguage.getId();
         }
-        if (!languages.isEmpty()) {
-            return languages.keySet().
+        if (!current.languages.isEmpty()) {
+            return current.languages.keySet().
                     iterator().
                     next();
         }
         return null;
     }
 
+    /**
+     * Get the reader for a raw content type - e.g. "application/json; charset=utf-8". Resolved readers are 
+     * cached by the raw content type so it is only normalized the first time it is seen.
+     */
     private ObjectReader getReader(String contentType) {
-        contentType = normalizeContentType(contentType);
-        return readers.get(contentType);
+        final Languages current = registered;
+        if (contentType == null)
+            return current.readers.get(getDefaultType());
+        ObjectReader reader = current.readerCache.get(contentType);
+        if (reader == null) {
+            reader = current.readers.get(normalizeContentType(contentType));
+            if (reader != null)
+                cache(current.readerCache, contentType, reader);
+        }
+        return reader;
     }
 
     private ObjectWriter getWriter(String contentType) {
-        contentType = normalizeContentType(contentType);
-        return writers.get(contentType);
+        final Languages current = registered;
+        if (contentType == null)
+            return current.writers.get(getDefaultType());
+        ObjectWriter writer = current.writerCache.get(contentType);
+        if (writer == null) {
+            writer = current.writers.get(normalizeContentType(contentType));
+            if (writer != null)
+                cache(current.writerCache, contentType, writer);
+        }
+        return writer;
+    }
+
+    private static <T> void cache(ConcurrentMap<String, T> cache, String contentType, T value) {
+        if (cache.size() >= MAX_CACHED_CONTENT_TYPES)
+            cache.clear();
+        cache.put(contentType, value);
     }
 
     public <T> T read(Input input, SharkType<T, ?> type) throws MappingException, IOException {
-        ObjectReader reader = getReader(input.getContentType());
+        return read(input, getReader(input.getContentType()), type);
+    }
+
+    /**
+     * Read input using the given language - regardless of the content type of the input
+     * @param input
+     * @param language
+     * @param type
+     * @return 
+     */
+    public <T> T read(Input input, SharkLanguage language, SharkType<T, ?> type) throws MappingException, IOException {
+        return read(input, language.getObjectReader(), type);
+    }
+
+    public <T> T read(Input input, SharkLanguage language, Class<T> clz) throws MappingException, IOException {
+        return read(input, language, SharkType.get(clz));
+    }
+
+    private <T> T read(Input input, ObjectReader reader, SharkType<T, ?> type) throws MappingException, IOException {
         if (reader == null) {
             reportError(String.format("Unknown content type: %s", input.getContentType()));
             return null;
         }
+        if (reader instanceof StreamingObjectReader) {
+            SharkStreamReader in = ((StreamingObjectReader) reader).open(input);
+            try {
+                in.next();
+                return read(in, type);
+            } finally {
+                in.close();
+            }
+        }
         SharkNode map = reader.read(input);
         return read(map, type);
     }
 
+    /**
+     * Lazily read the elements of the top level array in input - one at a time. For line delimited languages 
+     * each line is an element. The input is closed when the iterator has been exhausted or is closed.
+     * @param input
+     * @param type element type
+     * @return 
+     */
+    public <T> RecordIterator<T> readIterator(Input input, SharkType<T, ?> type) throws MappingException, IOException {
+        return readIterator(input, null, type);
+    }
+
+    public <T> RecordIterator<T> readIterator(Input input, Class<T> clz) throws MappingException, IOException {
+        return readIterator(input, SharkType.get(clz));
+    }
+
+    public <T> RecordIterator<T> readIterator(Input input, String path, SharkType<T, ?> type) throws MappingException, IOException {
+        ObjectReader reader = getReader(input.getContentType());
+        if (reader == null) {
+            reportError(String.format("Unknown content type: %s", input.getContentType()));
+            return null;
+        }
+        if (reader instanceof StreamingObjectReader) {
+            return new RecordIterator<T>(this, ((StreamingObjectReader) reader).open(input), path, type);
+        }
+        
+        //Reader does not support streaming - read the whole node tree and iterate that instead
+        return new RecordIterator<T>(this, new NodeStreamReader(reader.read(input)), path, type);
+    }
+
+    public <T> RecordIterator<T> readIterator(Input input, String path, Class<T> clz) throws MappingException, IOException {
+        return readIterator(input, path, SharkType.get(clz));
+    }
+
+    /**
+     * Read a value from input that is fed in chunks - without blocking while waiting for more input. Languages 
+     * that can not read partial input collect the chunks and read them when all input has been fed.
+     * @param contentType
+     * @param type
+     * @return 
+     */
+    public <T> AsyncReader<T> readAsync(String contentType, SharkType<T, ?> type) throws MappingException, IOException {
+        ObjectReader reader = getReader(contentType);
+        if (reader == null) {
+            reportError(String.format("Unknown content type: %s", contentType));
+            return null;
+        }
+        return readAsync(reader, contentType, type);
+    }
+
+    public <T> AsyncReader<T> readAsync(String contentType, Class<T> clz) throws MappingException, IOException {
+        return readAsync(contentType, SharkType.get(clz));
+    }
+
+    public <T> AsyncReader<T> readAsync(SharkLanguage language, SharkType<T, ?> type) throws MappingException, IOException {
+        return readAsync(language.getObjectReader(), language.getId(), type);
+    }
+
+    private <T> AsyncReader<T> readAsync(ObjectReader reader, String contentType, SharkType<T, ?> type) throws IOException {
+        if (reader instanceof AsyncObjectReader) {
+            return new AsyncReader<T>(this, ((AsyncObjectReader) reader).openAsync(), type);
+        }
+        return new AsyncReader<T>(this, new BufferedAsyncReader(reader, contentType), type);
+    }
+
+    /**
+     * Publish the elements of the top level array in input - or the value at path - to a single subscriber. 
+     * Records are read as they are requested. For line delimited languages each line is an element.
+     * @param input
+     * @param path path to array - e.g. "result/items". Null to use the top level value
+     * @param type element type
+     * @return 
+     */
+    public <T> RecordPublisher<T> readPublisher(Input input, String path, SharkType<T, ?> type) {
+        return new RecordPublisher<T>(this, input, path, type);
+    }
+
+    public <T> RecordPublisher<T> readPublisher(Input input, String path, Class<T> clz) {
+        return readPublisher(input, path, SharkType.get(clz));
+    }
+
+    public <T> RecordPublisher<T> readPublisher(Input input, SharkType<T, ?> type) {
+        return readPublisher(input, null, type);
+    }
+
+    public <T> RecordPublisher<T> readPublisher(Input input, Class<T> clz) {
+        return readPublisher(input, SharkType.get(clz));
+    }
+
+    public <T> T read(SharkStreamReader in, SharkType<T, ?> type) throws MappingException, IOException {
+        final SharkStreamReader.Token token = in.current();
+        if (token == null)
+            return read(new ValueNode<Object>(null), type);
+
+        if (token == SharkStreamReader.Token.VALUE && in.getPrimitiveType() == null && in.getValue() == null) {
+            if (!ReflectUtils.isSimple(type.getType()))
+                return null;
+        }
+
+        if (type.getType().equals(Object.class)) {
+            switch (token) {
+                case VALUE:
+                    Object value = in.getValue();
+                    if (value != null)
+                        type = SharkType.get((Class<T>)value.getClass());
+                    break;
+                case START_ARRAY:
+                    type = (SharkType<T, ?>) SharkType.forCollection(List.class, Object.class);
+                    break;
+                case START_OBJECT:
+                    type = (SharkType<T, ?>) SharkType.forMap(Map.class, Object.class);
+                    break;
+            }
+        }
+
+        final SharkDeserializer converter = getDeserializer(type);
+
+        if (SharkNode.class.isAssignableFrom(type.getType()))
+            return (T) in.readNode();
+
+        if (converter instanceof SharkStreamDeserializer) {
+            return (T) ((SharkStreamDeserializer) converter).deserialize(this, in, type);
+        }
+
+        if (converter != null) {
+            //Deserializer does not support streaming - fall back to reading the node tree
+            return (T) converter.deserialize(this, in.readNode(), type);
+        }
+
+        in.skipValue();
+        reportError(String.format("No deserializer could be found for %s",type));
+        return null;
+    }
+
     public <T> T read(Input input, Class<T> clz) throws MappingException, IOException {
         return read(input, SharkType.get(clz));
     }
@@ -219,7 +640,7 @@ public final class BabelSharkInstance {
             }
         }
         
-        final SharkDeserializer converter = deserializers.get(type); 
+        final SharkDeserializer converter = getDeserializer(type); 
         
         if (SharkNode.class.isAssignableFrom(type.getType()))
             return (T) node;
@@ -261,7 +682,7 @@ public final class BabelSharkInstance {
             if (value instanceof SharkNode)
                 return (SharkNode) value;
             
-            SharkSerializer converter = serializers.get(SharkType.get(value.getClass()));
+            SharkSerializer converter = getSerializer(value.getClass());
             if (converter != null) {
                 return converter.serialize(this, value);
             }
@@ -270,14 +691,108 @@ public final class BabelSharkInstance {
         return new ValueNode(null);
     }
 
+    public void write(SharkStreamWriter out, Object value) throws MappingException, IOException {
+        if (value == null) {
+            out.writeValue(null);
+            return;
+        }
+        if (value instanceof SharkNode) {
+            out.writeNode((SharkNode) value);
+            return;
+        }
+
+        SharkSerializer converter = getSerializer(value.getClass());
+        if (converter == null) {
+            reportError(String.format("No serializer could be found for %s",value.getClass()));
+            out.writeValue(null);
+            return;
+        }
+
+        if (converter instanceof SharkStreamSerializer) {
+            ((SharkStreamSerializer) converter).serialize(this, value, out);
+        } else {
+            //Serializer does not support streaming - fall back to writing the node tree
+            out.writeNode(converter.serialize(this, value));
+        }
+    }
+
     public void write(Output output, Object value) throws MappingException, IOException {
-        ObjectWriter writer = getWriter(output.getContentType());
+        write(output, getWriter(output.getContentType()), value);
+    }
+
+    /**
+     * Write value using the given language - regardless of the content type of the output
+     * @param output
+     * @param language
+     * @param value
+     */
+    public void write(Output output, SharkLanguage language, Object value) throws MappingException, IOException {
+        write(output, language.getObjectWriter(), value);
+    }
+
+    private void write(Output output, ObjectWriter writer, Object value) throws MappingException, IOException {
         if (writer == null) {
             reportError(String.format("Unknown content type: %s", output.getContentType()));
             return;
         }
+        if (writer instanceof StreamingObjectWriter) {
+            SharkStreamWriter out = ((StreamingObjectWriter) writer).open(output);
+            try {
+                write(out, value);
+            } finally {
+                out.close();
+            }
+            output.flush();
+            return;
+        }
         SharkNode map = write(value);
         writer.write(output, map);
+        output.flush();
+    }
+
+    /**
+     * Open writer that writes records one at a time as the elements of a top level array. For line delimited 
+     * languages each record is written as a separate line.
+     * @param output
+     * @return 
+     */
+    public <T> RecordWriter<T> openRecordWriter(final Output output) throws MappingException, IOException {
+        final ObjectWriter writer = getWriter(output.getContentType());
+        if (writer == null) {
+            reportError(String.format("Unknown content type: %s", output.getContentType()));
+            return null;
+        }
+        if (writer instanceof StreamingObjectWriter) {
+            return new RecordWriter<T>(this, ((StreamingObjectWriter) writer).open(output));
+        }
+        
+        //Writer does not support streaming - collect records and write them all when closed
+        return new RecordWriter<T>(this, new NodeStreamWriter() {
+            @Override
+            public void close() throws IOException {
+                writer.write(output, getRoot());
+                output.flush();
+            }
+        });
+    }
+
+    /**
+     * Subscriber that writes received items as records to output - like {@link #openRecordWriter(Output)}. 
+     * Output is completed when the publisher completes.
+     * @param output
+     * @return 
+     */
+    public <T> RecordSubscriber<T> writeSubscriber(Output output) {
+        return writeSubscriber(output, RecordSubscriber.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param output
+     * @param batchSize number of items requested at a time
+     * @return 
+     */
+    public <T> RecordSubscriber<T> writeSubscriber(Output output, int batchSize) {
+        return new RecordSubscriber<T>(this, output, batchSize);
     }
 
     private String normalizeContentType(String contentType) {
@@ -292,15 +807,125 @@ public final class BabelSharkInstance {
         return contentType;
     }
 
+    /**
+     * Write value as fixed size chunks that are handed to the consumer as they fill up - the last chunk may be 
+     * smaller. The value is written on a thread of executor, so the calling thread (e.g. an event loop) is never 
+     * blocked by writing it. The consumer is called on that thread - one chunk at a time.
+     * @param value
+     * @param contentType
+     * @param executor runs the writing of the value
+     * @param consumer
+     * @return future that is complete when all chunks have been handed to the consumer
+     */
+    public CompletableFuture<Void> writeAsync(final Object value, final String contentType, Executor executor, 
+                                              final Consumer<ByteBuffer> consumer) {
+        final CompletableFuture<Void> out = new CompletableFuture<Void>();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        ChunkedOutputStream stream = new ChunkedOutputStream(consumer);
+                        write(new Output(stream, contentType), value);
+                        stream.close();
+                        out.complete(null);
+                    } catch (Throwable ex) {
+                        out.completeExceptionally(ex);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            out.completeExceptionally(ex);
+        }
+        return out;
+    }
+
     public String writeToString(Object value, String contentType) throws MappingException, IOException {
+        ObjectWriter writer = getWriter(contentType);
+        if (writer instanceof TextObjectWriter) {
+            //Write characters straight to the string - without encoding them as bytes first
+            SegmentedStringWriter text = new SegmentedStringWriter(BufferRecyclers.getBufferRecycler());
+            SharkStreamWriter out = ((TextObjectWriter) writer).open(text);
+            try {
+                write(out, value);
+            } finally {
+                out.close();
+            }
+            return text.getAndClear();
+        }
         return new String(writeToByteArray(value, contentType),"UTF-8");
     }
 
     public byte[] writeToByteArray(Object value, String contentType) throws MappingException, IOException {
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        Output output = new Output(stream, contentType);
-        write(output, value);
-        return stream.toByteArray();
+        ByteArrayOutputStream stream = takeOutputBuffer();
+        try {
+            Output output = new Output(stream, contentType);
+            write(output, value);
+            return stream.toByteArray();
+        } finally {
+            releaseOutputBuffer(stream);
+        }
+    }
+
+    /**
+     * Write value into target - starting at its position. The position is moved past the written bytes. If the
+     * value can not be written the position is reset - the bytes after it may have been overwritten.
+     * @param value
+     * @param contentType
+     * @param target
+     * @return number of bytes written
+     * @throws BufferOverflowException if the value does not fit in the remaining bytes of target
+     */
+    public int writeTo(Object value, String contentType, ByteBuffer target) throws MappingException, IOException {
+        int start = target.position();
+        boolean written = false;
+        try {
+            write(new Output(new ByteBufferOutputStream(target), contentType), value);
+            written = true;
+        } catch (RuntimeException ex) {
+            //Converters wrap the overflow in their own exceptions
+            for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+                if (cause instanceof BufferOverflowException)
+                    throw (BufferOverflowException) cause;
+            }
+            throw ex;
+        } finally {
+            if (!written)
+                target.position(start);
+        }
+        return target.position() - start;
+    }
+
+    /**
+     * Write value into target - starting at offset
+     * @param value
+     * @param contentType
+     * @param target
+     * @param offset
+     * @return number of bytes written
+     * @throws BufferOverflowException if the value does not fit in target
+     */
+    public int writeTo(Object value, String contentType, byte[] target, int offset) throws MappingException, IOException {
+        return writeTo(value, contentType, ByteBuffer.wrap(target, offset, target.length - offset));
+    }
+
+    /**
+     * Get the output buffer of the current thread. Nested writes - while the buffer is taken - get a new buffer.
+     */
+    private static ByteArrayOutputStream takeOutputBuffer() {
+        ByteArrayOutputStream out = outputBuffers.get();
+        if (out == null)
+            return new ByteArrayOutputStream();
+        outputBuffers.set(null);
+        return out;
+    }
+
+    private static void releaseOutputBuffer(ByteArrayOutputStream stream) {
+        //Keep large outputs from being held on to by the thread
+        if (stream.size() > MAX_POOLED_BUFFER_SIZE)
+            return;
+        stream.reset();
+        outputBuffers.set(stream);
     }
 
     public String getMimeType(String type) {
@@ -309,8 +934,9 @@ public final class BabelSharkInstance {
     public String getMimeType(String type,boolean getDefault) {
         if (type == null || type.isEmpty())
             return getDefaultType();
-        String out = languages.get(type) != null
-                        ? languages.get(type).getContentTypes()[0] : null;
+        SharkLanguage language = registered.languages.get(type);
+        String out = language != null
+                        ? language.getContentTypes()[0] : null;
         if (out == null) {
             return type;
         }
@@ -338,4 +964,31 @@ public final class BabelSharkInstance {
         SharkNode node = write(value);
         return read(node,type);
     }
+
+    /**
+     * Immutable snapshot of the registered languages and their readers and writers
+     */
+    private static final class Languages {
+        private final SharkLanguage defaultLanguage;
+        private final Map<String, SharkLanguage> languages;
+        private final Map<String, ObjectReader> readers;
+        private final Map<String, ObjectWriter> writers;
+        //Readers and writers by raw content type - dropped with the snapshot when languages are registered
+        private final ConcurrentMap<String, ObjectReader> readerCache = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, ObjectWriter> writerCache = new ConcurrentHashMap<>();
+
+        private Languages() {
+            this(null, Collections.<String, SharkLanguage>emptyMap(), 
+                    Collections.<String, ObjectReader>emptyMap(), 
+                    Collections.<String, ObjectWriter>emptyMap());
+        }
+
+        private Languages(SharkLanguage defaultLanguage, Map<String, SharkLanguage> languages, 
+                          Map<String, ObjectReader> readers, Map<String, ObjectWriter> writers) {
+            this.defaultLanguage = defaultLanguage;
+            this.languages = Collections.unmodifiableMap(languages);
+            this.readers = Collections.unmodifiableMap(readers);
+            this.writers = Collections.unmodifiableMap(writers);
+        }
+    }
 }
@@ -0,0 +1,34 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.node.SharkNode;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Async reader for object readers that can only read complete inputs. Fed chunks are collected and read when
+ * the end of the input is reached.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+class BufferedAsyncReader implements SharkAsyncReader {
+    private final ObjectReader reader;
+    private final String contentType;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    BufferedAsyncReader(ObjectReader reader, String contentType) {
+        this.reader = reader;
+        this.contentType = contentType;
+    }
+
+    public SharkNode feed(byte[] data, int offset, int length) throws IOException {
+        buffer.write(data, offset, length);
+        return null;
+    }
+
+    public SharkNode endOfInput() throws IOException {
+        return reader.read(new Input(buffer.toByteArray(), contentType));
+    }
+
+    public void close() throws IOException {
+
+    }
+}
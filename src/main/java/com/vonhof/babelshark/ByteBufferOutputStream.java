@@ -0,0 +1,27 @@
+package com.vonhof.babelshark;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Output stream that writes directly into a fixed size buffer. Writes that do not fit throw 
+ * {@link java.nio.BufferOverflowException}.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+class ByteBufferOutputStream extends OutputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferOutputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        buffer.put(b, off, len);
+    }
+}
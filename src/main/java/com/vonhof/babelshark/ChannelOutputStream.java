@@ -0,0 +1,102 @@
+package com.vonhof.babelshark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Output stream that writes to a channel through a fixed size buffer. Small writes fill up the buffer, which is
+ * written to the channel in full whenever it fills up. Writes larger than the buffer are written straight from
+ * the array - together with the buffered bytes in a single write if the channel is gathering.
+ *
+ * Writes block until the channel has taken all bytes - so non-blocking channels are not supported.
+ * Closing the stream only flushes it - the channel belongs to the caller.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+class ChannelOutputStream extends OutputStream {
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final boolean gather;
+
+    ChannelOutputStream(WritableByteChannel channel, int bufferSize, boolean gather) {
+        if (bufferSize < 1)
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        if (isNonBlocking(channel))
+            throw new IllegalArgumentException("Non-blocking channels are not supported");
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.gather = gather && channel instanceof GatheringByteChannel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining())
+            flush();
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len <= buffer.remaining()) {
+            buffer.put(b, off, len);
+            return;
+        }
+        if (len < buffer.capacity()) {
+            //Fill up the buffer before writing it - so the channel gets full buffers
+            int fill = buffer.remaining();
+            buffer.put(b, off, fill);
+            flush();
+            buffer.put(b, off + fill, len - fill);
+            return;
+        }
+
+        //Large writes skip the buffer
+        ByteBuffer data = ByteBuffer.wrap(b, off, len);
+        buffer.flip();
+        if (gather) {
+            ByteBuffer[] buffers = new ByteBuffer[]{buffer, data};
+            while (data.hasRemaining()) {
+                if (((GatheringByteChannel) channel).write(buffers) == 0)
+                    checkBlocking();
+            }
+        } else {
+            drain(buffer);
+            drain(data);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        drain(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void drain(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            if (channel.write(data) == 0)
+                checkBlocking();
+        }
+    }
+
+    /**
+     * Fail instead of spinning if the channel was made non-blocking after the stream was created
+     */
+    private void checkBlocking() throws IOException {
+        if (isNonBlocking(channel))
+            throw new IOException("Non-blocking channels are not supported");
+    }
+
+    private static boolean isNonBlocking(WritableByteChannel channel) {
+        return channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking();
+    }
+}
@@ -0,0 +1,77 @@
+package com.vonhof.babelshark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Output stream that collects written bytes in fixed size chunks and hands each chunk to a consumer once it is
+ * full - and the last partial chunk when closed. Flushing does not emit partial chunks, so every chunk but the
+ * last has the same size. Every chunk is a new buffer, so consumers may keep them - e.g. to queue them for a 
+ * non-blocking write.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class ChunkedOutputStream extends OutputStream {
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final Consumer<ByteBuffer> consumer;
+    private final int chunkSize;
+    private byte[] chunk;
+    private int count = 0;
+    private boolean closed = false;
+
+    public ChunkedOutputStream(Consumer<ByteBuffer> consumer) {
+        this(consumer, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ChunkedOutputStream(Consumer<ByteBuffer> consumer, int chunkSize) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        this.consumer = consumer;
+        this.chunkSize = chunkSize;
+        this.chunk = new byte[chunkSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        chunk[count++] = (byte) b;
+        if (count == chunkSize)
+            emit();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int length = Math.min(len, chunkSize - count);
+            System.arraycopy(b, off, chunk, count, length);
+            count += length;
+            off += length;
+            len -= length;
+            if (count == chunkSize)
+                emit();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        if (count > 0)
+            emit();
+        closed = true;
+    }
+
+    private void emit() {
+        consumer.accept(ByteBuffer.wrap(chunk, 0, count));
+        chunk = new byte[chunkSize];
+        count = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Stream is closed");
+    }
+}
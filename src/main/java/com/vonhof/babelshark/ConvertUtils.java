@@ -124,13 +124,13 @@ public class ConvertUtils {
 
     public static <T> T convert(Number number,Class<T> type) {
         if (Integer.class.equals(type) || int.class.equals(type))
-            return (T) new Integer(number.intValue());
+            return (T) Integer.valueOf(number.intValue());
         if (Float.class.equals(type) || float.class.equals(type))
-            return (T) new Float(number.floatValue());
+            return (T) Float.valueOf(number.floatValue());
         if (Long.class.equals(type) || long.class.equals(type))
-            return (T) new Long(number.longValue());
+            return (T) Long.valueOf(number.longValue());
         if (Double.class.equals(type) || double.class.equals(type))
-            return (T) new Double(number.doubleValue());
+            return (T) Double.valueOf(number.doubleValue());
         if (Date.class.equals(type))
             return (T) new Date(number.longValue());
         return null;
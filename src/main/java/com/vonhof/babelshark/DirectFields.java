@@ -0,0 +1,41 @@
+package com.vonhof.babelshark;
+
+import java.util.Set;
+
+/**
+ * Marks the fields of a bean that can be written directly - primitive fields whose values are written by the
+ * built-in simple converter. Other fields must go through their serializer, so converters registered for e.g.
+ * Boolean are used the same way for streamed and node output.
+ *
+ * Resolved once per bean and reused until converters are registered on the instance.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public final class DirectFields {
+    private final Set<Class> types;
+    private final boolean[] direct;
+
+    /**
+     * @param bs
+     * @param fieldTypes the types of the fields - in the order they are checked in
+     */
+    public DirectFields(BabelSharkInstance bs, Class... fieldTypes) {
+        this.types = bs.getDirectTypes();
+        this.direct = new boolean[fieldTypes.length];
+        for(int i = 0; i < fieldTypes.length; i++) {
+            direct[i] = types.contains(fieldTypes[i]);
+        }
+    }
+
+    /**
+     * Returns false if converters have been registered on bs since this was resolved
+     * @param bs
+     * @return
+     */
+    public boolean isCurrent(BabelSharkInstance bs) {
+        return bs.getDirectTypes() == types;
+    }
+
+    public boolean isDirect(int field) {
+        return direct[field];
+    }
+}
@@ -1,37 +1,124 @@
 package com.vonhof.babelshark;
 
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import org.apache.commons.io.input.CharSequenceInputStream;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 
 /**
- * Class that wraps inputstream with contentType
+ * Class that wraps inputstream with contentType.
+ *
+ * Inputs may also be backed by bytes, buffers or text in memory - readers that support it read those directly
+ * instead of through the stream. getStream() works for every input.
  * @author Henrik Hofmeister <@vonhofdk>
  */
 public class Input {
-    private final static Logger log = LogManager.getLogger(Input.class);
-    private final InputStream input;
+    //Max size of a single memory mapped region
+    private final static long MAX_REGION_SIZE = Integer.MAX_VALUE;
+
+    private InputStream input;
     private final String contentType;
-    
-    public Input(String input, String contentType) {
-        InputStream is;
-        try {
-            is = new ByteArrayInputStream(input.getBytes("UTF-8"));
-        } catch (UnsupportedEncodingException ex) {
-            log.error("Failed to ready input", ex);
-            is = new ByteArrayInputStream(input.getBytes());
-        }
-        this.input = is;
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+    private final ByteBuffer buffer;
+    private final CharSequence text;
+
+    private Input(InputStream input, byte[] bytes, int offset, int length, ByteBuffer buffer, CharSequence text,
+                  String contentType) {
+        this.input = input;
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.buffer = buffer;
+        this.text = text;
         this.contentType = contentType;
     }
 
+    public Input(String input, String contentType) {
+        this((CharSequence) input, contentType);
+    }
+
+    public Input(CharSequence text, String contentType) {
+        this(null, null, 0, 0, null, text, contentType);
+    }
+
+    public Input(char[] chars, int offset, int length, String contentType) {
+        this(CharBuffer.wrap(chars, offset, length), contentType);
+    }
+
+    public Input(byte[] bytes, String contentType) {
+        this(bytes, 0, bytes.length, contentType);
+    }
+
+    public Input(byte[] bytes, int offset, int length, String contentType) {
+        this(null, bytes, offset, length, null, null, contentType);
+    }
+
+    /**
+     * Input from the remaining bytes of buffer. The position of buffer is not changed.
+     * @param buffer
+     * @param contentType
+     */
+    public Input(ByteBuffer buffer, String contentType) {
+        this(null,
+                buffer.hasArray() ? buffer.array() : null,
+                buffer.hasArray() ? buffer.arrayOffset() + buffer.position() : 0,
+                buffer.remaining(),
+                buffer.slice(), null, contentType);
+    }
+
     public Input(InputStream input, String contentType) {
-        this.input = input;
-        this.contentType = contentType;
+        this(input, null, 0, 0, null, null, contentType);
+    }
+
+    /**
+     * Input from a memory mapped region of a file
+     * @param channel
+     * @param position
+     * @param size
+     * @param contentType
+     * @return
+     * @throws IOException
+     */
+    public static Input map(FileChannel channel, long position, long size, String contentType) throws IOException {
+        if (size <= MAX_REGION_SIZE)
+            return new Input(channel.map(FileChannel.MapMode.READ_ONLY, position, size), contentType);
+
+        //Larger regions are mapped in parts and read one after the other
+        List<InputStream> parts = new ArrayList<InputStream>();
+        for (long start = 0; start < size; start += MAX_REGION_SIZE) {
+            ByteBuffer part = channel.map(FileChannel.MapMode.READ_ONLY, position + start,
+                    Math.min(MAX_REGION_SIZE, size - start));
+            parts.add(new ByteBufferInputStream(part));
+        }
+        return new Input(new SequenceInputStream(Collections.enumeration(parts)), contentType);
+    }
+
+    /**
+     * Input from a memory mapped file
+     * @param file
+     * @param contentType
+     * @return
+     * @throws IOException
+     */
+    public static Input map(Path file, String contentType) throws IOException {
+        //Mapped regions stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return map(channel, 0, channel.size(), contentType);
+        }
     }
 
     public String getContentType() {
@@ -39,6 +126,54 @@ public class Input {
     }
 
     public InputStream getStream() {
+        if (input == null) {
+            if (bytes != null)
+                input = new ByteArrayInputStream(bytes, offset, length);
+            else if (buffer != null)
+                input = new ByteBufferInputStream(buffer.duplicate());
+            else
+                input = new CharSequenceInputStream(text, StandardCharsets.UTF_8);
+        }
         return input;
     }
+
+    /**
+     * Get the array that holds the bytes of this input - or null if the input is not backed by an array
+     * @return
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Offset of the first byte in getBytes()
+     * @return
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Number of bytes in getBytes() or getBuffer()
+     * @return
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get the buffer that holds the bytes of this input - or null if the input is not backed by a buffer
+     * @return
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Get the text of this input - or null if the input is not text
+     * @return
+     */
+    public CharSequence getText() {
+        return text;
+    }
 }
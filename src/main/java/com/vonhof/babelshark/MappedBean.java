@@ -7,15 +7,27 @@ import com.vonhof.babelshark.node.SharkType;
 import com.vonhof.babelshark.reflect.ClassInfo;
 import com.vonhof.babelshark.reflect.FieldInfo;
 import com.vonhof.babelshark.reflect.MethodInfo;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
 public class MappedBean<T> {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType LONG_GETTER_TYPE = MethodType.methodType(long.class, Object.class);
+    private static final MethodType DOUBLE_GETTER_TYPE = MethodType.methodType(double.class, Object.class);
+    private static final MethodType BOOLEAN_GETTER_TYPE = MethodType.methodType(boolean.class, Object.class);
+    
     private final Map<String,ObjectField> fields = new LinkedHashMap<String, ObjectField>();
     private final Map<String,String> originalFields = new LinkedHashMap<String, String>();
     private final ClassInfo<T> clz;
     private final MethodInfo factoryMethod;
+    //Fields written directly by the instance that last wrote this bean
+    private volatile DirectFields directFields;
 
     public MappedBean(Class<T> clz) throws MappingException {
         this(ClassInfo.from(clz));
@@ -45,6 +57,10 @@ public class MappedBean<T> {
         return out;
     }
 
+    public ClassInfo<T> getClassInfo() {
+        return clz;
+    }
+
     public boolean hasFactoryMethod() {
         return factoryMethod != null;
     }
@@ -56,10 +72,30 @@ public class MappedBean<T> {
         return fields.keySet();
     }
 
+    /**
+     * Get the fields that bs can write directly - in the order of getFieldList()
+     * @param bs
+     * @return 
+     */
+    public DirectFields getDirectFields(BabelSharkInstance bs) {
+        DirectFields out = directFields;
+        if (out == null || !out.isCurrent(bs)) {
+            Class[] types = new Class[fields.size()];
+            int i = 0;
+            for(ObjectField field:fields.values()) {
+                types[i++] = field.getType().getType();
+            }
+            out = new DirectFields(bs, types);
+            directFields = out;
+        }
+        return out;
+    }
+
     public ObjectField addField(String name,FieldInfo field,MethodInfo getter,MethodInfo setter) {
         final ObjectField oField = new ObjectField(field, getter, setter);
         
-        fields.put(name,oField);
+        //Canonical names - so lookups with field names read through a symbol table match by identity
+        fields.put(name.intern(),oField);
         originalFields.put(field.getName(), name);
         return oField;
     }
@@ -109,42 +145,127 @@ public class MappedBean<T> {
         return hash;
     }
     
+    /**
+     * How the value of a field can be read without boxing
+     */
+    public static enum ValueKind {
+        OBJECT,
+        /**
+         * byte, short, int or long - read using getLong
+         */
+        LONG,
+        /**
+         * double - read using getDouble
+         */
+        DOUBLE,
+        /**
+         * boolean - read using getBoolean
+         */
+        BOOLEAN
+    }
+    
     public class ObjectField {
         private final FieldInfo field;
         private final SharkType type;
         private MethodInfo getter;
         private MethodInfo setter;
+        //Accessors are resolved once - null if reflection must be used instead
+        private final MethodHandle getterHandle;
+        private final MethodHandle setterHandle;
+        private final MethodHandle primitiveGetterHandle;
+        private final ValueKind valueKind;
 
 
         public ObjectField(FieldInfo field, MethodInfo getter, MethodInfo setter) {
             this.field = field;
             this.getter = getter;
             this.setter = setter;
+            this.type = readType();
             
+            MethodHandle handle = hasGetter() ? unreflectGetter() : null;
+            getterHandle = handle != null ? handle.asType(GETTER_TYPE) : null;
+            
+            ValueKind kind = ValueKind.OBJECT;
+            MethodHandle primitiveHandle = null;
+            if (handle != null) {
+                Class<?> valueType = handle.type().returnType();
+                if (valueType == long.class || valueType == int.class 
+                        || valueType == short.class || valueType == byte.class) {
+                    kind = ValueKind.LONG;
+                    primitiveHandle = handle.asType(LONG_GETTER_TYPE);
+                } else if (valueType == double.class) {
+                    kind = ValueKind.DOUBLE;
+                    primitiveHandle = handle.asType(DOUBLE_GETTER_TYPE);
+                } else if (valueType == boolean.class) {
+                    kind = ValueKind.BOOLEAN;
+                    primitiveHandle = handle.asType(BOOLEAN_GETTER_TYPE);
+                }
+            }
+            valueKind = kind;
+            primitiveGetterHandle = primitiveHandle;
+            
+            handle = hasSetter() ? unreflectSetter() : null;
+            setterHandle = handle != null ? handle.asType(SETTER_TYPE) : null;
+        }
+        
+        private MappingException wrap(Throwable ex) {
+            if (ex instanceof Error)
+                throw (Error) ex;
+            return new MappingException(ex);
+        }
+        
+        private SharkType readType() {
             if (field.isMapOrCollection()) {
                 //Attempt to get the list or map value types
                 if (getter != null) {
-                    type = SharkType.get(getter.getReturnClassInfo());
-                    return;
+                    return SharkType.get(getter.getReturnClassInfo());
                 }
                 if (setter != null) {
-                    type = SharkType.get(setter.getParameter(0).getClassInfo());
-                    return;
+                    return SharkType.get(setter.getParameter(0).getClassInfo());
                 }
                 if (field.isPublic()) {
-                    type = SharkType.get(field.getClassInfo());
-                    return;
+                    return SharkType.get(field.getClassInfo());
+                }
+            }
+            return SharkType.get(field);
+        }
+        
+        private MethodHandle unreflectGetter() {
+            try {
+                if (getter != null) {
+                    return LOOKUP.unreflect(getter.getMethod());
+                }
+                return LOOKUP.unreflectGetter(field.getField());
+            } catch (Exception ex) {
+                //Not accessible - use reflection
+                return null;
+            }
+        }
+        
+        private MethodHandle unreflectSetter() {
+            try {
+                if (setter != null) {
+                    return LOOKUP.unreflect(setter.getMethod());
                 }
+                return LOOKUP.unreflectSetter(field.getField());
+            } catch (Exception ex) {
+                //Not accessible or final - use reflection
+                return null;
             }
-            this.type = SharkType.get(field);
         }
         
 
         public SharkType getType() {
             return type;
         }
-        
 
+        /**
+         * Get how the value of this field can be read without boxing
+         * @return 
+         */
+        public ValueKind getValueKind() {
+            return valueKind;
+        }
         
         public boolean hasGetter() {
             if (field.isStatic()) {
@@ -166,22 +287,67 @@ public class MappedBean<T> {
         
         public Object get(T obj) throws MappingException {
             try {
+                if (getterHandle != null) {
+                    return (Object) getterHandle.invokeExact((Object) obj);
+                }
                 if (getter == null) {
                     return field.get(obj);
                 }
                 return getter.invoke(obj);
-            } catch (Exception ex) {
-                throw new MappingException(ex);
+            } catch (Throwable ex) {
+                throw wrap(ex);
             }
         }
+        
+        /**
+         * Get value of field of kind {@link ValueKind#LONG}
+         */
+        public long getLong(T obj) throws MappingException {
+            if (valueKind != ValueKind.LONG)
+                return ((Number) get(obj)).longValue();
+            try {
+                return (long) primitiveGetterHandle.invokeExact((Object) obj);
+            } catch (Throwable ex) {
+                throw wrap(ex);
+            }
+        }
+        
+        /**
+         * Get value of field of kind {@link ValueKind#DOUBLE}
+         */
+        public double getDouble(T obj) throws MappingException {
+            if (valueKind != ValueKind.DOUBLE)
+                return ((Number) get(obj)).doubleValue();
+            try {
+                return (double) primitiveGetterHandle.invokeExact((Object) obj);
+            } catch (Throwable ex) {
+                throw wrap(ex);
+            }
+        }
+        
+        /**
+         * Get value of field of kind {@link ValueKind#BOOLEAN}
+         */
+        public boolean getBoolean(T obj) throws MappingException {
+            if (valueKind != ValueKind.BOOLEAN)
+                return (Boolean) get(obj);
+            try {
+                return (boolean) primitiveGetterHandle.invokeExact((Object) obj);
+            } catch (Throwable ex) {
+                throw wrap(ex);
+            }
+        }
+        
         public void set(T obj,Object value) throws MappingException {
             try {
-                if (setter == null)
+                if (setterHandle != null)
+                    setterHandle.invokeExact((Object) obj, value);
+                else if (setter == null)
                     field.set(obj, value);
                 else
                     setter.invoke(obj, value);
-            } catch (Exception ex) {
-                throw new MappingException(ex);
+            } catch (Throwable ex) {
+                throw wrap(ex);
             }
         }
 
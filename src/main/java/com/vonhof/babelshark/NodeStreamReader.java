@@ -0,0 +1,142 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.node.ArrayNode;
+import com.vonhof.babelshark.node.ObjectNode;
+import com.vonhof.babelshark.node.SharkNode;
+import com.vonhof.babelshark.node.ValueNode;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Stream reader that reads the tokens of an existing node tree. Used for languages that can only read
+ * complete node trees.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class NodeStreamReader implements SharkStreamReader {
+    private final Deque<Parent> parents = new ArrayDeque<Parent>();
+    private final SharkNode root;
+    private boolean started;
+    private Token current;
+    private SharkNode currentNode;
+    private String fieldName;
+
+    public NodeStreamReader(SharkNode root) {
+        this.root = root;
+    }
+
+    public Token next() throws IOException {
+        if (!started) {
+            started = true;
+            return enter(root);
+        }
+        
+        Parent parent = parents.peek();
+        if (parent == null) {
+            current = null;
+            currentNode = null;
+            return null;
+        }
+        
+        if (parent.field != null) {
+            String field = parent.field;
+            parent.field = null;
+            return enter(((ObjectNode)parent.node).get(field));
+        }
+        
+        if (parent.children.hasNext()) {
+            if (parent.node instanceof ArrayNode) 
+                return enter((SharkNode) parent.children.next());
+            
+            fieldName = (String) parent.children.next();
+            parent.field = fieldName;
+            current = Token.FIELD_NAME;
+            return current;
+        }
+        
+        return leave();
+    }
+
+    public Token current() {
+        return current;
+    }
+
+    public String getFieldName() throws IOException {
+        return fieldName;
+    }
+
+    public Object getValue() throws IOException {
+        if (currentNode instanceof ValueNode) 
+            return ((ValueNode)currentNode).getValue();
+        return null;
+    }
+
+    public Class getPrimitiveType() throws IOException {
+        if (currentNode instanceof ValueNode) 
+            return ((ValueNode)currentNode).getPrimitiveType();
+        return null;
+    }
+
+    public long getLong() throws IOException {
+        return ((ValueNode)currentNode).getLong();
+    }
+
+    public double getDouble() throws IOException {
+        return ((ValueNode)currentNode).getDouble();
+    }
+
+    public boolean getBoolean() throws IOException {
+        return ((ValueNode)currentNode).getBoolean();
+    }
+
+    public void skipValue() throws IOException {
+        if (current == Token.START_OBJECT || current == Token.START_ARRAY) 
+            leave();
+    }
+
+    public SharkNode readNode() throws IOException {
+        SharkNode node = currentNode;
+        if (node == null)
+            return new ValueNode<Object>(null);
+        skipValue();
+        return node;
+    }
+
+    public void close() throws IOException {
+        parents.clear();
+    }
+    
+    private Token enter(SharkNode node) {
+        currentNode = node;
+        if (node instanceof ObjectNode) {
+            parents.push(new Parent(node, ((ObjectNode)node).getFields().iterator()));
+            current = Token.START_OBJECT;
+        } else if (node instanceof ArrayNode) {
+            parents.push(new Parent(node, ((ArrayNode)node).iterator()));
+            current = Token.START_ARRAY;
+        } else {
+            current = Token.VALUE;
+        }
+        return current;
+    }
+    
+    private Token leave() {
+        Parent parent = parents.pop();
+        currentNode = parent.node;
+        current = parent.node instanceof ArrayNode ? Token.END_ARRAY : Token.END_OBJECT;
+        return current;
+    }
+    
+    private static class Parent {
+        private final SharkNode node;
+        private final Iterator<?> children;
+        //Field name that has been read - but not its value
+        private String field;
+
+        public Parent(SharkNode node, Iterator<?> children) {
+            this.node = node;
+            this.children = children;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.node.ArrayNode;
+import com.vonhof.babelshark.node.ObjectNode;
+import com.vonhof.babelshark.node.SharkNode;
+import com.vonhof.babelshark.node.ValueNode;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Stream writer that builds a node tree from the written events. Used for languages that can only write
+ * complete node trees.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class NodeStreamWriter implements SharkStreamWriter {
+    private final Deque<SharkNode> parents = new ArrayDeque<SharkNode>();
+    private String fieldName;
+    private SharkNode root;
+
+    /**
+     * Get the written node tree - or null if nothing has been written
+     * @return 
+     */
+    public SharkNode getRoot() {
+        return root;
+    }
+
+    public void writeStartObject() throws IOException {
+        parents.push(add(new ObjectNode()));
+    }
+
+    public void writeFieldName(String name) throws IOException {
+        fieldName = name;
+    }
+
+    public void writeEndObject() throws IOException {
+        parents.pop();
+    }
+
+    public void writeStartArray() throws IOException {
+        parents.push(add(new ArrayNode()));
+    }
+
+    public void writeEndArray() throws IOException {
+        parents.pop();
+    }
+
+    public void writeValue(Object value) throws IOException {
+        add(new ValueNode(value));
+    }
+
+    public void writeValue(long value) throws IOException {
+        add(ValueNode.of(value));
+    }
+
+    public void writeValue(double value) throws IOException {
+        add(ValueNode.of(value));
+    }
+
+    public void writeValue(boolean value) throws IOException {
+        add(ValueNode.of(value));
+    }
+
+    public void writeNode(SharkNode node) throws IOException {
+        add(node);
+    }
+
+    public void flush() throws IOException {
+        
+    }
+
+    public void close() throws IOException {
+        
+    }
+    
+    private <T extends SharkNode> T add(T node) throws IOException {
+        SharkNode parent = parents.peek();
+        if (parent == null) {
+            if (root != null) 
+                throw new IOException("Only one root node can be written");
+            root = node;
+        } else if (parent instanceof ArrayNode) {
+            ((ArrayNode) parent).add(node);
+        } else {
+            ((ObjectNode) parent).put(fieldName, node);
+        }
+        return node;
+    }
+}
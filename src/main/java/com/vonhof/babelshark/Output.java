@@ -1,22 +1,51 @@
 package com.vonhof.babelshark;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
- * Class that wraps outputstream with contentType
+ * Class that wraps outputstream with contentType.
+ *
+ * Outputs may also write to a channel - through a fixed size buffer that is written to the channel as it fills up.
  * @author Henrik Hofmeister <@vonhofdk>
  */
 public class Output {
+    public static final int DEFAULT_BUFFER_SIZE = 65536;
+
     private final OutputStream output;
+    private final WritableByteChannel channel;
     private final String contentType;
-    
+
     public Output(String contentType) {
         this(new ByteArrayOutputStream(),contentType);
     }
 
     public Output(OutputStream output, String contentType) {
         this.output = output;
+        this.channel = null;
+        this.contentType = contentType;
+    }
+
+    public Output(WritableByteChannel channel, String contentType) {
+        this(channel, DEFAULT_BUFFER_SIZE, true, contentType);
+    }
+
+    /**
+     * Output that writes to channel. The channel is not closed by the output. Writes block until the channel has
+     * taken all bytes, so channel must be in blocking mode.
+     * @param channel
+     * @param bufferSize size of the buffer that is written to the channel when full
+     * @param gather write buffered bytes and large arrays in a single write if channel is a GatheringByteChannel
+     * @param contentType
+     * @throws IllegalArgumentException if channel is a non-blocking SelectableChannel
+     */
+    public Output(WritableByteChannel channel, int bufferSize, boolean gather, String contentType) {
+        this.output = new ChannelOutputStream(channel, bufferSize, gather);
+        this.channel = channel;
         this.contentType = contentType;
     }
 
@@ -27,4 +56,43 @@ public class Output {
     public OutputStream getStream() {
         return output;
     }
+
+    /**
+     * Get the channel of this output - or null if the output is not backed by a channel
+     * @return
+     */
+    public WritableByteChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Write any buffered bytes to the channel
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        if (channel != null)
+            output.flush();
+    }
+
+    /**
+     * Copy bytes from a file to this output - after what has been written so far. The file channel transfers the
+     * bytes directly to the target channel where the platform supports it.
+     * @param source
+     * @param position
+     * @param count
+     * @return number of bytes copied
+     * @throws IOException
+     */
+    public long transferFrom(FileChannel source, long position, long count) throws IOException {
+        output.flush();
+        WritableByteChannel target = channel != null ? channel : Channels.newChannel(output);
+        long transferred = 0;
+        while (transferred < count) {
+            long bytes = source.transferTo(position + transferred, count - transferred, target);
+            if (bytes <= 0)
+                break;
+            transferred += bytes;
+        }
+        return transferred;
+    }
 }
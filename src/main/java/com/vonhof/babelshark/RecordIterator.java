@@ -0,0 +1,148 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.converter.BabelSharkDeserializeException;
+import com.vonhof.babelshark.exception.MappingException;
+import com.vonhof.babelshark.node.SharkType;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily reads the elements of a top level array one at a time. If the input is not an array it is read as
+ * a single element.
+ * 
+ * A path (e.g. "path/to/array") can be given to read the elements of an array nested inside objects instead.
+ * Everything outside the path is skipped without being read into memory. If the path does not exist 
+ * there are no elements.
+ * 
+ * The underlying input is closed once all elements have been read - or when close is called.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class RecordIterator<T> implements Iterator<T>, Closeable {
+    private final BabelSharkInstance bs;
+    private final SharkStreamReader in;
+    private final SharkType<T,?> type;
+    private boolean array;
+    private boolean ready;
+    private boolean done;
+
+    public RecordIterator(BabelSharkInstance bs, SharkStreamReader in, SharkType<T, ?> type) throws IOException {
+        this(bs, in, null, type);
+    }
+
+    public RecordIterator(BabelSharkInstance bs, SharkStreamReader in, String path, SharkType<T, ?> type) throws IOException {
+        this.bs = bs;
+        this.in = in;
+        this.type = type;
+        
+        SharkStreamReader.Token token = in.current();
+        if (token == null) 
+            token = in.next();
+        
+        if (token != null && path != null) 
+            token = seek(path);
+        
+        if (token == null) {
+            close();
+        } else {
+            array = token == SharkStreamReader.Token.START_ARRAY;
+            //Single value is ready to be read right away
+            ready = !array;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (done)
+            return false;
+        if (ready)
+            return true;
+        
+        try {
+            SharkStreamReader.Token token = array ? in.next() : null;
+            if (token == null || token == SharkStreamReader.Token.END_ARRAY) {
+                close();
+                return false;
+            }
+        } catch (IOException ex) {
+            throw new BabelSharkDeserializeException("Failed to read next record", ex);
+        }
+        ready = true;
+        return true;
+    }
+
+    @Override
+    public T next() throws MappingException {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        ready = false;
+        try {
+            T out = bs.read(in, type);
+            if (!array)
+                close();
+            return out;
+        } catch (IOException ex) {
+            throw new BabelSharkDeserializeException("Failed to read record", ex);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Records can not be removed");
+    }
+
+    /**
+     * Stream the remaining records. Closing the stream closes the iterator.
+     * @return 
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException ex) {
+                        throw new BabelSharkDeserializeException("Failed to close records", ex);
+                    }
+                });
+    }
+
+    /**
+     * Moves the reader to the value at path - skipping everything else.
+     * @return the first token of the value or null if not found
+     */
+    private SharkStreamReader.Token seek(String path) throws IOException {
+        for (String part : path.split("/")) {
+            if (part.isEmpty())
+                continue;
+            if (in.current() != SharkStreamReader.Token.START_OBJECT)
+                return null;
+            
+            boolean found = false;
+            while (in.next() == SharkStreamReader.Token.FIELD_NAME) {
+                String fieldName = in.getFieldName();
+                in.next();
+                if (part.equals(fieldName)) {
+                    found = true;
+                    break;
+                }
+                in.skipValue();
+            }
+            if (!found)
+                return null;
+        }
+        return in.current();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (done)
+            return;
+        done = true;
+        in.close();
+    }
+}
@@ -0,0 +1,166 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.node.SharkType;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the records of an input - the elements of the top level array or the lines of line delimited
+ * languages. Records are only read when requested, on the thread that requests them, so the demand of the
+ * subscriber throttles the parser.
+ *
+ * The input can only be read once - so records are published to a single subscriber. Null records are skipped.
+ * A subscriber that throws from onNext or onComplete is treated as cancelled - it is not sent onError.
+ *
+ * Created by {@link BabelSharkInstance#readPublisher(Input, String, SharkType)}
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class RecordPublisher<T> implements Flow.Publisher<T> {
+    private final BabelSharkInstance bs;
+    private final Input input;
+    private final String path;
+    private final SharkType<T, ?> type;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    RecordPublisher(BabelSharkInstance bs, Input input, String path, SharkType<T, ?> type) {
+        this.bs = bs;
+        this.input = input;
+        this.path = path;
+        this.type = type;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                public void request(long n) {
+
+                }
+
+                public void cancel() {
+
+                }
+            });
+            subscriber.onError(new IllegalStateException("Records can only be published to a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new RecordSubscription(subscriber));
+    }
+
+    private class RecordSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        //Number of pending drain calls - only the caller that raises it from 0 drains
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile boolean invalidRequest;
+        //Only used while draining
+        private RecordIterator<T> records;
+        private boolean opened;
+
+        private RecordSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = true;
+            } else {
+                long current, next;
+                do {
+                    current = demand.get();
+                    next = current + n;
+                    if (next < 0)
+                        next = Long.MAX_VALUE;
+                } while (!demand.compareAndSet(current, next));
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        /**
+         * Emit records while there is demand. Calls from onNext - or other threads - while draining only
+         * mark that another round is needed, so records are emitted by one thread at a time and without recursion.
+         */
+        private void drain() {
+            if (pending.getAndIncrement() != 0)
+                return;
+            int missed = 1;
+            do {
+                if (invalidRequest && !cancelled)
+                    fail(new IllegalArgumentException("Requested number of records must be positive"));
+                while (!cancelled && demand.get() > 0) {
+                    T record;
+                    try {
+                        if (!opened) {
+                            opened = true;
+                            records = bs.readIterator(input, path, type);
+                        }
+                        if (records == null || !records.hasNext()) {
+                            cancelled = true;
+                            signal(null);
+                            break;
+                        }
+                        record = records.next();
+                    } catch (Throwable ex) {
+                        fail(ex);
+                        break;
+                    }
+                    if (record == null)
+                        continue;
+                    demand.decrementAndGet();
+                    signal(record);
+                }
+                if (cancelled)
+                    close();
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Send record to the subscriber - or complete it if record is null. A subscriber that throws is 
+         * considered cancelled (rule 2.13) - the error is not sent back to it.
+         */
+        private void signal(T record) {
+            try {
+                if (record == null)
+                    subscriber.onComplete();
+                else
+                    subscriber.onNext(record);
+            } catch (Throwable ex) {
+                cancelled = true;
+            }
+        }
+
+        private void fail(Throwable error) {
+            cancelled = true;
+            try {
+                subscriber.onError(error);
+            } catch (Throwable ex) {
+                //Nothing left to report to
+            }
+        }
+
+        private void close() {
+            if (records == null)
+                return;
+            try {
+                records.close();
+            } catch (IOException ex) {
+                //Nothing left to report to
+            }
+            records = null;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.exception.MappingException;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Writes the received items as records to an output - as the elements of a top level array or as lines for line
+ * delimited languages. Items are requested in batches, so a slow output throttles the publisher.
+ *
+ * The result future completes when the publisher completes and the output has been closed - or exceptionally
+ * if the publisher or the output fails. A failed output is not completed - see {@link RecordWriter#abort()}.
+ *
+ * Created by {@link BabelSharkInstance#writeSubscriber(Output)}
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class RecordSubscriber<T> implements Flow.Subscriber<T> {
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final BabelSharkInstance bs;
+    private final Output output;
+    private final int batchSize;
+    private final CompletableFuture<Void> result = new CompletableFuture<Void>();
+    private Flow.Subscription subscription;
+    private RecordWriter<T> writer;
+    private int received = 0;
+
+    RecordSubscriber(BabelSharkInstance bs, Output output, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        this.bs = bs;
+        this.output = output;
+        this.batchSize = batchSize;
+    }
+
+    public CompletableFuture<Void> getResult() {
+        return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        try {
+            writer = bs.openRecordWriter(output);
+            if (writer == null)
+                throw new MappingException(String.format("Unknown content type: %s", output.getContentType()));
+        } catch (Throwable ex) {
+            subscription.cancel();
+            result.completeExceptionally(ex);
+            return;
+        }
+        subscription.request(batchSize);
+    }
+
+    @Override
+    public void onNext(T item) {
+        if (result.isDone())
+            return;
+        try {
+            writer.write(item);
+        } catch (Throwable ex) {
+            subscription.cancel();
+            fail(ex);
+            return;
+        }
+        if (++received == batchSize) {
+            received = 0;
+            subscription.request(batchSize);
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        if (result.isDone())
+            return;
+        fail(error);
+    }
+
+    @Override
+    public void onComplete() {
+        if (result.isDone())
+            return;
+        try {
+            writer.close();
+            result.complete(null);
+        } catch (Throwable ex) {
+            result.completeExceptionally(ex);
+        }
+    }
+
+    private void fail(Throwable error) {
+        try {
+            if (writer != null)
+                writer.abort();
+        } catch (IOException ex) {
+            error.addSuppressed(ex);
+        }
+        result.completeExceptionally(error);
+    }
+}
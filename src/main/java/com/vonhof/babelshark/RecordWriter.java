@@ -0,0 +1,57 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.exception.MappingException;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes records one at a time as the elements of a single top level array - e.g. a JSON array or
+ * the lines of newline delimited JSON.
+ * 
+ * Closing the record writer completes the output.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class RecordWriter<T> implements Closeable, Flushable {
+    private final BabelSharkInstance bs;
+    private final SharkStreamWriter out;
+    private boolean closed;
+
+    public RecordWriter(BabelSharkInstance bs, SharkStreamWriter out) throws IOException {
+        this.bs = bs;
+        this.out = out;
+        out.writeStartArray();
+    }
+    
+    public void write(T record) throws MappingException, IOException {
+        if (closed)
+            throw new IOException("Record writer is closed");
+        bs.write(out, record);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Stop writing without completing the output - e.g. when the records could not be produced. Records written 
+     * so far are flushed, but the top level array is left open so readers can tell that the output is incomplete.
+     * @throws IOException 
+     */
+    public void abort() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        out.writeEndArray();
+        out.close();
+    }
+}
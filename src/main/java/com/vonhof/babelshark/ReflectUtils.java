@@ -1,7 +1,13 @@
 package com.vonhof.babelshark;
 
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.GenericDeclaration;
+import java.lang.reflect.Member;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.Time;
@@ -84,4 +90,56 @@ public class ReflectUtils {
         return !isCollection(type) && !isMap(type) && !isSimple(type);
     }
     
+    /**
+     * Get the class - of owner and the classes used in types - that was loaded by the innermost class loader.
+     * Caches stored with that class (e.g. in a ClassValue) do not keep classes of other loaders from being 
+     * unloaded.
+     * @param owner
+     * @param types
+     * @return 
+     */
+    public static Class getInnermostClass(Class owner, Type... types) {
+        for(Type type:types) {
+            owner = getInnermostClass(owner, type);
+        }
+        return owner;
+    }
+    
+    private static Class getInnermostClass(Class owner, Type type) {
+        if (type instanceof Class)
+            return innermost(owner, (Class) type);
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            owner = getInnermostClass(owner, parameterized.getRawType());
+            return getInnermostClass(owner, parameterized.getActualTypeArguments());
+        }
+        if (type instanceof GenericArrayType)
+            return getInnermostClass(owner, ((GenericArrayType) type).getGenericComponentType());
+        if (type instanceof WildcardType) {
+            owner = getInnermostClass(owner, ((WildcardType) type).getUpperBounds());
+            return getInnermostClass(owner, ((WildcardType) type).getLowerBounds());
+        }
+        if (type instanceof TypeVariable) {
+            //Bounds may refer back to the variable - the declaring class is enough
+            GenericDeclaration declaration = ((TypeVariable) type).getGenericDeclaration();
+            if (declaration instanceof Class)
+                return innermost(owner, (Class) declaration);
+            if (declaration instanceof Member)
+                return innermost(owner, ((Member) declaration).getDeclaringClass());
+        }
+        return owner;
+    }
+    
+    private static Class innermost(Class a, Class b) {
+        ClassLoader loaderA = a.getClassLoader();
+        ClassLoader loaderB = b.getClassLoader();
+        if (loaderA == loaderB || loaderB == null)
+            return a;
+        for(ClassLoader loader = loaderB.getParent(); loader != null; loader = loader.getParent()) {
+            if (loader == loaderA)
+                return b;
+        }
+        //Loaders of a are below loaders of b - or unrelated
+        return loaderA == null ? b : a;
+    }
 }
@@ -0,0 +1,29 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.node.SharkNode;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Push based reader that parses input as it is fed - and never blocks waiting for more input.
+ *
+ * The fed bytes are fully consumed before feed returns - so callers may reuse their buffers.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public interface SharkAsyncReader extends Closeable {
+    /**
+     * Feed the next chunk of input
+     * @param data
+     * @param offset
+     * @param length
+     * @return the complete root node - or null if more input is needed
+     */
+    public SharkNode feed(byte[] data, int offset, int length) throws IOException;
+
+    /**
+     * Signal that no more input will be fed
+     * @return the complete root node
+     * @throws IOException if the input ended before the root node was complete
+     */
+    public SharkNode endOfInput() throws IOException;
+}
@@ -0,0 +1,11 @@
+package com.vonhof.babelshark;
+
+/**
+ * Provides converters for new BabelShark instances. Implementations are discovered using 
+ * {@link java.util.ServiceLoader} - e.g. the converters generated for beans annotated with 
+ * {@link com.vonhof.babelshark.annotation.GenerateConverter}
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public interface SharkConverterProvider {
+    public void register(BabelSharkInstance bs);
+}
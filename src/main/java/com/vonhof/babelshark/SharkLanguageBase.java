@@ -7,12 +7,13 @@ package com.vonhof.babelshark;
 abstract public class SharkLanguageBase implements SharkLanguage{
     private final String id;
     private final String[] contentTypes;
+    private volatile SymbolTable symbolTable;
 
     protected SharkLanguageBase(String id, String ... contentTypes) {
         this.id = id;
         this.contentTypes = contentTypes;
     }
-    
+
     public String getId() {
         return id;
     }
@@ -20,4 +21,28 @@ abstract public class SharkLanguageBase implements SharkLanguage{
     public String[] getContentTypes() {
         return contentTypes;
     }
+
+    /**
+     * Symbol table used by readers to canonicalize field names - or null if names are used as read
+     * @return
+     */
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * Get the canonical instance of the given field name
+     * @param name
+     * @return
+     */
+    protected String toFieldName(String name) {
+        final SymbolTable symbols = symbolTable;
+        if (symbols == null)
+            return name;
+        return symbols.intern(name);
+    }
 }
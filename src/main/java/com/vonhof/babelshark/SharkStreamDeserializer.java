@@ -0,0 +1,14 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.exception.MappingException;
+import com.vonhof.babelshark.node.SharkType;
+import java.io.IOException;
+
+/**
+ * Deserializers implementing this interface will be used to read directly from a SharkStreamReader when the input
+ * language supports it. Otherwise the regular SharkDeserializer.deserialize method is used.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public interface SharkStreamDeserializer<T> extends SharkDeserializer<T> {
+    public <U> T deserialize(BabelSharkInstance bs,SharkStreamReader in,SharkType<T,U> type) throws MappingException, IOException;
+}
@@ -0,0 +1,77 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.node.SharkNode;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Pull based token reader that lets deserializers read directly from the underlying format - without building a
+ * SharkNode tree first.
+ * 
+ * Deserializers are called with the reader positioned at the first token of the value to read, and must leave it 
+ * positioned at the last token of that value (the value itself or the matching END_OBJECT / END_ARRAY).
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public interface SharkStreamReader extends Closeable {
+    /**
+     * Move to next token
+     * @return the new current token - or null if the end of the input has been reached
+     */
+    public Token next() throws IOException;
+    
+    /**
+     * Get the current token - or null if no more tokens are available
+     * @return 
+     */
+    public Token current();
+    
+    /**
+     * Get name of field when current token is FIELD_NAME
+     * @return 
+     */
+    public String getFieldName() throws IOException;
+    
+    /**
+     * Get simple value (string, number, boolean or null) when current token is VALUE
+     * @return 
+     */
+    public Object getValue() throws IOException;
+    
+    /**
+     * Get the primitive type of the current value when it can be read without boxing - int, long, double or 
+     * boolean - or null if it can only be read as an object using {@link #getValue()}
+     * @return 
+     */
+    public Class getPrimitiveType() throws IOException;
+    
+    /**
+     * Get the current value when its primitive type is int or long
+     * @return 
+     */
+    public long getLong() throws IOException;
+    
+    /**
+     * Get the current value when its primitive type is double
+     * @return 
+     */
+    public double getDouble() throws IOException;
+    
+    /**
+     * Get the current value when its primitive type is boolean
+     * @return 
+     */
+    public boolean getBoolean() throws IOException;
+    
+    /**
+     * Skip the current value - including all children of objects and arrays.
+     */
+    public void skipValue() throws IOException;
+    
+    /**
+     * Read the current value as a node tree. Used for deserializers that do not support streaming
+     * @return 
+     */
+    public SharkNode readNode() throws IOException;
+    
+    public static enum Token {START_OBJECT,END_OBJECT,START_ARRAY,END_ARRAY,FIELD_NAME,VALUE}
+}
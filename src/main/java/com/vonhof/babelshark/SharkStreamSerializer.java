@@ -0,0 +1,13 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.exception.MappingException;
+import java.io.IOException;
+
+/**
+ * Serializers implementing this interface will be used to write directly to a SharkStreamWriter when the output
+ * language supports it. Otherwise the regular SharkSerializer.serialize method is used.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public interface SharkStreamSerializer<T> extends SharkSerializer<T> {
+    public void serialize(BabelSharkInstance bs,T value,SharkStreamWriter out) throws MappingException, IOException;
+}
@@ -0,0 +1,53 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.node.SharkNode;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Event sink that lets serializers write their output directly to the underlying format - without building a
+ * SharkNode tree first.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public interface SharkStreamWriter extends Closeable, Flushable {
+    public void writeStartObject() throws IOException;
+    
+    public void writeFieldName(String name) throws IOException;
+    
+    public void writeEndObject() throws IOException;
+    
+    public void writeStartArray() throws IOException;
+    
+    public void writeEndArray() throws IOException;
+    
+    /**
+     * Write simple value (string, number, boolean, date, enum etc.) or null
+     * @param value 
+     */
+    public void writeValue(Object value) throws IOException;
+    
+    /**
+     * Write integer value without boxing
+     * @param value 
+     */
+    public void writeValue(long value) throws IOException;
+    
+    /**
+     * Write decimal value without boxing
+     * @param value 
+     */
+    public void writeValue(double value) throws IOException;
+    
+    /**
+     * Write boolean value without boxing
+     * @param value 
+     */
+    public void writeValue(boolean value) throws IOException;
+    
+    /**
+     * Write an already built node tree. Used for serializers that do not support streaming
+     * @param node 
+     */
+    public void writeNode(SharkNode node) throws IOException;
+}
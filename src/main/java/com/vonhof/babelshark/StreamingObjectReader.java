@@ -0,0 +1,16 @@
+package com.vonhof.babelshark;
+
+import java.io.IOException;
+
+/**
+ * Object reader that can be read from as a stream of tokens instead of a complete node tree
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public interface StreamingObjectReader extends ObjectReader {
+    /**
+     * Open stream reader for input. The reader is positioned before the first token.
+     * @param in
+     * @return 
+     */
+    public SharkStreamReader open(Input in) throws IOException;
+}
@@ -0,0 +1,16 @@
+package com.vonhof.babelshark;
+
+import java.io.IOException;
+
+/**
+ * Object writer that can be written to as a stream of events instead of a complete node tree
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public interface StreamingObjectWriter extends ObjectWriter {
+    /**
+     * Open stream writer for output. Closing the stream writer completes the output.
+     * @param out
+     * @return 
+     */
+    public SharkStreamWriter open(Output out) throws IOException;
+}
@@ -0,0 +1,61 @@
+package com.vonhof.babelshark;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded table of canonical field names - shared by all documents read through the same languages, so equal
+ * field names are stored once instead of once per parsed object.
+ *
+ * Canonical names are also interned - so they are identical to the names of mapped bean fields. The table is
+ * cleared when it is full, which keeps inputs with many distinct field names from growing it without bound.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public final class SymbolTable {
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private final int maxSize;
+    private final ConcurrentMap<String,String> symbols = new ConcurrentHashMap<String, String>();
+
+    public SymbolTable() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public SymbolTable(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Max size must be positive: " + maxSize);
+        this.maxSize = maxSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+
+    public void clear() {
+        symbols.clear();
+    }
+
+    /**
+     * Get the canonical instance of the given name
+     * @param name
+     * @return
+     */
+    public String intern(String name) {
+        if (name == null)
+            return null;
+        String out = symbols.get(name);
+        if (out != null)
+            return out;
+
+        if (symbols.size() >= maxSize)
+            symbols.clear();
+
+        out = name.intern();
+        String existing = symbols.putIfAbsent(out, out);
+        return existing != null ? existing : out;
+    }
+}
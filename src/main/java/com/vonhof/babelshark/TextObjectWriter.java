@@ -0,0 +1,18 @@
+package com.vonhof.babelshark;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streaming object writer for text formats that can write characters directly - e.g. to build a string without
+ * encoding and decoding bytes in between
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public interface TextObjectWriter extends StreamingObjectWriter {
+    /**
+     * Open stream writer that writes characters to out. Closing the stream writer completes the output.
+     * @param out
+     * @return 
+     */
+    public SharkStreamWriter open(Writer out) throws IOException;
+}
@@ -2,8 +2,11 @@ package com.vonhof.babelshark;
 
 import com.vonhof.babelshark.node.SharkType;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  *
@@ -11,12 +14,51 @@ import java.util.Map;
  */
 public class TypeRegistry<T> {
     
-    private Map<SharkType,T> registry = new HashMap<>();
+    //Marks types without a value in the resolved cache
+    private static final Object NONE = new Object();
     
-    public void put(SharkType type,T value) {
-        registry.put(type, value);
+    //Immutable snapshot of the registered values - replaced as a whole when values are added
+    private volatile Map<SharkType,T> registry = Collections.emptyMap();
+    
+    //Results of previous lookups - including types without a value. Replaced when values are added so 
+    //lookups running at the same time can not store old results.
+    private volatile ConcurrentMap<SharkType,Object> resolved = new ConcurrentHashMap<>();
+    
+    public synchronized void put(SharkType type,T value) {
+        Map<SharkType,T> copy = new HashMap<>(registry);
+        copy.put(type, value);
+        //Publish the values before the new cache - lookups that see the new cache also see the new values
+        registry = Collections.unmodifiableMap(copy);
+        resolved = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Get the registered values
+     * @return 
+     */
+    public Collection<T> getValues() {
+        return registry.values();
+    }
+    
+    /**
+     * Forget the results of previous lookups - they are resolved again next time
+     */
+    public void clearResolved() {
+        resolved = new ConcurrentHashMap<>();
     }
+    
     public T get(SharkType type) {
+        final ConcurrentMap<SharkType,Object> cache = resolved;
+        Object value = cache.get(type);
+        if (value == null) {
+            //Walk a single snapshot - so one lookup never mixes old and new values
+            value = lookup(registry, type);
+            cache.put(type, value != null ? value : NONE);
+        }
+        return value != NONE ? (T) value : null;
+    }
+    
+    private T lookup(Map<SharkType,T> registry, SharkType type) {
         T value = registry.get(type);
         if (value != null)
             return value;
@@ -24,12 +66,16 @@ public class TypeRegistry<T> {
         Class clz = type.getType();
         if (clz.isArray()) {
             type = SharkType.forCollection(Collection.class, clz.getComponentType());
-            return get(type);
+            return lookup(registry, type);
+        }
+        if (type.isCollection()) {
+            SharkType collectionType = SharkType.get(Collection.class);
+            return type.equals(collectionType) ? null : lookup(registry, collectionType);
+        }
+        if (type.isMap()) {
+            SharkType mapType = SharkType.get(Map.class);
+            return type.equals(mapType) ? null : lookup(registry, mapType);
         }
-        if (type.isCollection())
-            return get(SharkType.get(Collection.class));
-        if (type.isMap())
-            return get(SharkType.get(Map.class));
         
         //Check super classes
         while(value == null) {
@@ -0,0 +1,17 @@
+package com.vonhof.babelshark.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Generate a converter for this bean at compile time. The generated converter is registered with new 
+ * BabelShark instances automatically - so the bean can be (de)serialized without reflection.
+ * 
+ * Requires the annotation processor in com.vonhof.babelshark.processor to run during compilation.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+@Documented
+@Target(value={ElementType.TYPE})
+@Retention(value=RetentionPolicy.CLASS)
+public @interface GenerateConverter {
+    
+}
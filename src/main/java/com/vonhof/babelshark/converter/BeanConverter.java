@@ -2,23 +2,30 @@ package com.vonhof.babelshark.converter;
 
 import com.vonhof.babelshark.BabelSharkInstance;
 import com.vonhof.babelshark.BeanMapper;
+import com.vonhof.babelshark.DirectFields;
 import com.vonhof.babelshark.MappedBean;
 import com.vonhof.babelshark.MappedBean.ObjectField;
 import com.vonhof.babelshark.SharkConverter;
+import com.vonhof.babelshark.SharkStreamDeserializer;
+import com.vonhof.babelshark.SharkStreamReader;
+import com.vonhof.babelshark.SharkStreamSerializer;
+import com.vonhof.babelshark.SharkStreamWriter;
 import com.vonhof.babelshark.annotation.TypeResolver;
 import com.vonhof.babelshark.exception.MappingException;
 import com.vonhof.babelshark.impl.DefaultBeanMapper;
 import com.vonhof.babelshark.node.ObjectNode;
 import com.vonhof.babelshark.node.SharkNode;
 import com.vonhof.babelshark.node.SharkType;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Map;
 
 /**
  *
  * @author Henrik Hofmeister <@vonhofdk>
  */
-public class BeanConverter<T> implements SharkConverter<T> {
+public class BeanConverter<T> implements SharkConverter<T>, SharkStreamSerializer<T>, SharkStreamDeserializer<T> {
     
     private final BeanMapper beanMapper;
 
@@ -30,6 +37,35 @@ public class BeanConverter<T> implements SharkConverter<T> {
         this.beanMapper = beanMapper;
     }
 
+    /**
+     * Remove the mappings of all classes loaded by classLoader - if the bean mapper supports it
+     * @param classLoader 
+     */
+    public void evict(ClassLoader classLoader) {
+        if (beanMapper instanceof DefaultBeanMapper)
+            ((DefaultBeanMapper) beanMapper).evict(classLoader);
+    }
+
+    /**
+     * Create converter dedicated to clz - or return this converter if that is not possible.
+     * @param bs
+     * @param clz
+     * @return 
+     */
+    public SharkConverter<T> compile(BabelSharkInstance bs, Class<T> clz) {
+        try {
+            MappedBean<T> map = beanMapper.getMap(clz);
+            //Type resolvers and factory methods need the complete object
+            if (map.hasFactoryMethod() 
+                    || clz.isAnnotationPresent(TypeResolver.class)) {
+                return this;
+            }
+            return new CompiledBeanConverter<T>(bs, map);
+        } catch (MappingException ex) {
+            return this;
+        }
+    }
+
     public <U> T deserialize(BabelSharkInstance bs, SharkNode node, SharkType<T, U> type) throws MappingException {
         if (!node.is(SharkNode.NodeType.MAP)) {
             throw new MappingException(String.format("Could not convert %s to %s",node,type));
@@ -74,6 +110,39 @@ public class BeanConverter<T> implements SharkConverter<T> {
         return (T) out;
     }
 
+    public <U> T deserialize(BabelSharkInstance bs, SharkStreamReader in, SharkType<T, U> type) throws MappingException, IOException {
+        if (in.current() != SharkStreamReader.Token.START_OBJECT) {
+            throw new MappingException(String.format("Could not convert %s to %s",in.current(),type));
+        }
+        MappedBean<?> map = beanMapper.getMap(type.getType());
+        
+        //Type resolvers and factory methods need the complete object - read it as a node
+        if (map.hasFactoryMethod() 
+                || type.getType().isAnnotationPresent(TypeResolver.class)) {
+            return deserialize(bs, in.readNode(), type);
+        }
+        
+        Object out = map.newInstance(null);
+        while(in.next() == SharkStreamReader.Token.FIELD_NAME) {
+            final String field = in.getFieldName();
+            final MappedBean.ObjectField oField = map.getField(field);
+            in.next();
+            if (oField == null || !oField.hasSetter()) {
+                in.skipValue();
+                continue;
+            }
+            try {
+                Object value = bs.read(in, oField.getType());
+                oField.set(out, value);
+            } catch (IOException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new BabelSharkDeserializeException(String.format("Failed to read value for field: %s", field), ex);
+            }
+        }
+        return (T) out;
+    }
+
     public SharkNode serialize(BabelSharkInstance bs, Object instance) throws MappingException {
         ObjectNode out = new ObjectNode();
         SharkType type = SharkType.get(instance.getClass());
@@ -91,4 +160,44 @@ public class BeanConverter<T> implements SharkConverter<T> {
         return out;
     }
 
+    public void serialize(BabelSharkInstance bs, Object instance, SharkStreamWriter out) throws MappingException, IOException {
+        MappedBean<Object> map = beanMapper.getMap((Class<Object>) instance.getClass());
+        DirectFields direct = map.getDirectFields(bs);
+        out.writeStartObject();
+        int i = -1;
+        for (Map.Entry<String,MappedBean<Object>.ObjectField> entry:map.getFields().entrySet()) {
+            i++;
+            String field = entry.getKey();
+            MappedBean.ObjectField oField = entry.getValue();
+            if (!oField.hasGetter()) continue;
+            
+            //Primitives are written without boxing - unless a custom converter is registered for them
+            switch (direct.isDirect(i) ? oField.getValueKind() : MappedBean.ValueKind.OBJECT) {
+                case LONG:
+                    out.writeFieldName(field);
+                    out.writeValue(oField.getLong(instance));
+                    continue;
+                case DOUBLE:
+                    out.writeFieldName(field);
+                    out.writeValue(oField.getDouble(instance));
+                    continue;
+                case BOOLEAN:
+                    out.writeFieldName(field);
+                    out.writeValue(oField.getBoolean(instance));
+                    continue;
+            }
+            
+            Object value = oField.get(instance);
+            out.writeFieldName(field);
+            try {
+                bs.write(out, value);
+            } catch (IOException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new BabelSharkSerializeException(String.format("Failed to write value for field: %s => %s", field, value), ex);
+            }
+        }
+        out.writeEndObject();
+    }
+
 }
@@ -3,33 +3,47 @@ package com.vonhof.babelshark.converter;
 import com.vonhof.babelshark.BabelSharkInstance;
 import com.vonhof.babelshark.ReflectUtils;
 import com.vonhof.babelshark.SharkConverter;
+import com.vonhof.babelshark.SharkStreamDeserializer;
+import com.vonhof.babelshark.SharkStreamReader;
+import com.vonhof.babelshark.SharkStreamSerializer;
+import com.vonhof.babelshark.SharkStreamWriter;
 import com.vonhof.babelshark.exception.MappingException;
 import com.vonhof.babelshark.node.ArrayNode;
 import com.vonhof.babelshark.node.SharkNode;
 import com.vonhof.babelshark.node.SharkType;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
  *
  * @author Henrik Hofmeister <@vonhofdk>
  */
-public class CollectionConverter implements SharkConverter<Object> {
+public class CollectionConverter implements SharkConverter<Object>, SharkStreamSerializer<Object>, SharkStreamDeserializer<Object> {
 
 
     public SharkNode serialize(BabelSharkInstance bs, Object instance) throws MappingException {
         ArrayNode node = new ArrayNode();
         if (instance.getClass().isArray()) {
             int length = Array.getLength(instance);
+            ForkJoinPool pool = bs.getParallelPool(length);
+            if (pool != null) {
+                return add(node, WriteTask.write(bs, pool, toArray(instance, length)));
+            }
             for (int i = 0; i < length; i++) {
                 Object value = Array.get(instance, i);
                 node.add(bs.write(value));
             }
         } else {
             Collection list = (Collection) instance;
+            ForkJoinPool pool = bs.getParallelPool(list.size());
+            if (pool != null) {
+                return add(node, WriteTask.write(bs, pool, list.toArray()));
+            }
             for (Object value : list) {
                 node.add(bs.write(value));
             }
@@ -38,6 +52,56 @@ public class CollectionConverter implements SharkConverter<Object> {
         return node;
     }
 
+    private ArrayNode add(ArrayNode node, SharkNode[] children) {
+        for (SharkNode child : children) {
+            node.add(child);
+        }
+        return node;
+    }
+
+    private Object[] toArray(Object array, int length) {
+        if (array instanceof Object[])
+            return (Object[]) array;
+        Object[] values = new Object[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = Array.get(array, i);
+        }
+        return values;
+    }
+
+    public void serialize(BabelSharkInstance bs, Object instance, SharkStreamWriter out) throws MappingException, IOException {
+        out.writeStartArray();
+        if (instance.getClass().isArray()) {
+            int length = Array.getLength(instance);
+            ForkJoinPool pool = bs.getParallelPool(length);
+            if (pool != null) {
+                //Elements are written to nodes in parallel - and then to the stream in order
+                write(out, WriteTask.write(bs, pool, toArray(instance, length)));
+            } else {
+                for (int i = 0; i < length; i++) {
+                    bs.write(out, Array.get(instance, i));
+                }
+            }
+        } else {
+            Collection list = (Collection) instance;
+            ForkJoinPool pool = bs.getParallelPool(list.size());
+            if (pool != null) {
+                write(out, WriteTask.write(bs, pool, list.toArray()));
+            } else {
+                for (Object value : list) {
+                    bs.write(out, value);
+                }
+            }
+        }
+        out.writeEndArray();
+    }
+
+    private void write(SharkStreamWriter out, SharkNode[] children) throws IOException {
+        for (SharkNode child : children) {
+            out.writeNode(child);
+        }
+    }
+
     public <U> Object deserialize(BabelSharkInstance bs, SharkNode node, SharkType<Object, U> type) throws MappingException {
         if (!node.is(SharkNode.NodeType.LIST)) {
             bs.reportError(String.format("Could not convert %s to %s", node, type));
@@ -46,7 +110,6 @@ public class CollectionConverter implements SharkConverter<Object> {
 
         ArrayNode listNode = (ArrayNode) node;
 
-        Collection out = null;
         try {
             Class clz = type.getType();
             if (clz.isArray()) {
@@ -56,7 +119,59 @@ public class CollectionConverter implements SharkConverter<Object> {
                     Array.set(array, i, value);
                 }
                 return array;
-            } else if (!ReflectUtils.isInstantiatable(clz)) {
+            }
+        } catch (Exception ex) {
+            throw new MappingException(ex);
+        }
+
+        Collection out = newInstance(bs, type);
+        if (out == null)
+            return null;
+
+        for (SharkNode childNode : listNode) {
+            out.add(bs.read(childNode, type.getValueType()));
+        }
+        return out;
+    }
+
+    public <U> Object deserialize(BabelSharkInstance bs, SharkStreamReader in, SharkType<Object, U> type) throws MappingException, IOException {
+        if (in.current() != SharkStreamReader.Token.START_ARRAY) {
+            in.skipValue();
+            bs.reportError(String.format("Could not convert %s to %s", in.current(), type));
+            return null;
+        }
+
+        Class clz = type.getType();
+        if (clz.isArray()) {
+            //Array length is not known up front - collect values first
+            SharkType componentType = SharkType.get(clz.getComponentType());
+            List values = new ArrayList();
+            while (in.next() != SharkStreamReader.Token.END_ARRAY) {
+                values.add(bs.read(in, componentType));
+            }
+            Object array = Array.newInstance(clz.getComponentType(), values.size());
+            for (int i = 0; i < values.size(); i++) {
+                Array.set(array, i, values.get(i));
+            }
+            return array;
+        }
+
+        Collection out = newInstance(bs, type);
+        if (out == null) {
+            in.skipValue();
+            return null;
+        }
+
+        while (in.next() != SharkStreamReader.Token.END_ARRAY) {
+            out.add(bs.read(in, type.getValueType()));
+        }
+        return out;
+    }
+
+    private <U> Collection newInstance(BabelSharkInstance bs, SharkType<Object, U> type) throws MappingException {
+        try {
+            Class clz = type.getType();
+            if (!ReflectUtils.isInstantiatable(clz)) {
                 if (Set.class.isAssignableFrom(clz)) {
                     clz = HashSet.class;
                 } else if (List.class.isAssignableFrom(clz)) {
@@ -69,14 +184,9 @@ public class CollectionConverter implements SharkConverter<Object> {
                 }
             }
 
-            out = (Collection) clz.newInstance();
+            return (Collection) clz.newInstance();
         } catch (Exception ex) {
             throw new MappingException(ex);
         }
-
-        for (SharkNode childNode : listNode) {
-            out.add(bs.read(childNode, type.getValueType()));
-        }
-        return out;
     }
 }
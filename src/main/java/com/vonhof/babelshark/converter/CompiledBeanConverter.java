@@ -0,0 +1,279 @@
+package com.vonhof.babelshark.converter;
+
+import com.vonhof.babelshark.BabelSharkInstance;
+import com.vonhof.babelshark.DirectFields;
+import com.vonhof.babelshark.MappedBean;
+import com.vonhof.babelshark.ReflectUtils;
+import com.vonhof.babelshark.SharkConverter;
+import com.vonhof.babelshark.SharkDeserializer;
+import com.vonhof.babelshark.SharkSerializer;
+import com.vonhof.babelshark.SharkStreamDeserializer;
+import com.vonhof.babelshark.SharkStreamReader;
+import com.vonhof.babelshark.SharkStreamSerializer;
+import com.vonhof.babelshark.SharkStreamWriter;
+import com.vonhof.babelshark.exception.MappingException;
+import com.vonhof.babelshark.node.ObjectNode;
+import com.vonhof.babelshark.node.SharkNode;
+import com.vonhof.babelshark.node.SharkType;
+import com.vonhof.babelshark.node.ValueNode;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bean converter for a single class. Fields are resolved once into a fixed list of properties - each with its
+ * own child converter - instead of looking up the bean map, fields and converters for every value.
+ *
+ * This is a pre-resolved plan - not generated code. The same property loop and accessor handles are used for
+ * every bean class. Use {@link com.vonhof.babelshark.annotation.GenerateConverter} for straight-line code.
+ *
+ * Created by {@link BeanConverter#compile(BabelSharkInstance, Class)}
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class CompiledBeanConverter<T> implements SharkConverter<T>, SharkStreamSerializer<T>, SharkStreamDeserializer<T> {
+
+    private final BabelSharkInstance bs;
+    private final MappedBean<T> map;
+    private final Property[] properties;
+    private final Map<String,Property> propertyMap = new HashMap<String, Property>();
+    private final Class[] propertyTypes;
+    //Fields written directly - resolved on first write
+    private volatile DirectFields directFields;
+
+    CompiledBeanConverter(BabelSharkInstance bs, MappedBean<T> map) {
+        this.bs = bs;
+        this.map = map;
+
+        List<Property> list = new ArrayList<Property>();
+        for(Map.Entry<String,MappedBean<T>.ObjectField> entry:map.getFields().entrySet()) {
+            Property property = new Property(entry.getKey(), entry.getValue());
+            list.add(property);
+            propertyMap.put(property.name, property);
+        }
+        properties = list.toArray((Property[]) new CompiledBeanConverter.Property[list.size()]);
+        propertyTypes = new Class[properties.length];
+        for(int i = 0; i < properties.length; i++) {
+            propertyTypes[i] = properties[i].type.getType();
+        }
+    }
+
+    public <U> T deserialize(BabelSharkInstance bs, SharkNode node, SharkType<T, U> type) throws MappingException {
+        if (!node.is(SharkNode.NodeType.MAP)) {
+            throw new MappingException(String.format("Could not convert %s to %s",node,type));
+        }
+        ObjectNode objNode = (ObjectNode) node;
+        T out = map.newInstance(objNode);
+        for(String field:objNode.getFields()) {
+            final Property property = propertyMap.get(field);
+            if (property == null || !property.writable) continue;
+            try {
+                property.field.set(out, property.read(objNode.get(field)));
+            } catch (Exception ex) {
+                throw new BabelSharkDeserializeException(String.format("Failed to read value for field: %s", field), ex);
+            }
+        }
+        return out;
+    }
+
+    public <U> T deserialize(BabelSharkInstance bs, SharkStreamReader in, SharkType<T, U> type) throws MappingException, IOException {
+        if (in.current() != SharkStreamReader.Token.START_OBJECT) {
+            throw new MappingException(String.format("Could not convert %s to %s",in.current(),type));
+        }
+
+        T out = map.newInstance(null);
+        int next = 0;
+        while(in.next() == SharkStreamReader.Token.FIELD_NAME) {
+            final String field = in.getFieldName();
+
+            //Fields usually arrive in the order they are written - check the expected property first
+            Property property = null;
+            if (next < properties.length && properties[next].name.equals(field)) {
+                property = properties[next];
+                next++;
+            } else {
+                property = propertyMap.get(field);
+            }
+
+            in.next();
+            if (property == null || !property.writable) {
+                in.skipValue();
+                continue;
+            }
+            try {
+                property.field.set(out, property.read(in));
+            } catch (IOException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new BabelSharkDeserializeException(String.format("Failed to read value for field: %s", field), ex);
+            }
+        }
+        return out;
+    }
+
+    public SharkNode serialize(BabelSharkInstance bs, T instance) throws MappingException {
+        ObjectNode out = new ObjectNode();
+        for(Property property:properties) {
+            if (!property.readable) continue;
+            Object value = property.field.get(instance);
+            try {
+                out.put(property.name, property.write(value));
+            } catch (Exception ex) {
+                throw new BabelSharkSerializeException(String.format("Failed to write value for field: %s => %s", property.name, value), ex);
+            }
+        }
+        return out;
+    }
+
+    public void serialize(BabelSharkInstance bs, T instance, SharkStreamWriter out) throws MappingException, IOException {
+        DirectFields direct = directFields;
+        if (direct == null || !direct.isCurrent(this.bs)) {
+            direct = new DirectFields(this.bs, propertyTypes);
+            directFields = direct;
+        }
+        out.writeStartObject();
+        for(int i = 0; i < properties.length; i++) {
+            Property property = properties[i];
+            if (!property.readable) continue;
+
+            //Primitives are written without boxing - unless a custom converter is registered for them
+            switch (direct.isDirect(i) ? property.field.getValueKind() : MappedBean.ValueKind.OBJECT) {
+                case LONG:
+                    out.writeFieldName(property.name);
+                    out.writeValue(property.field.getLong(instance));
+                    continue;
+                case DOUBLE:
+                    out.writeFieldName(property.name);
+                    out.writeValue(property.field.getDouble(instance));
+                    continue;
+                case BOOLEAN:
+                    out.writeFieldName(property.name);
+                    out.writeValue(property.field.getBoolean(instance));
+                    continue;
+            }
+
+            Object value = property.field.get(instance);
+            out.writeFieldName(property.name);
+            try {
+                property.write(value, out);
+            } catch (IOException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new BabelSharkSerializeException(String.format("Failed to write value for field: %s => %s", property.name, value), ex);
+            }
+        }
+        out.writeEndObject();
+    }
+
+    private class Property {
+        private final String name;
+        private final MappedBean<T>.ObjectField field;
+        private final SharkType type;
+        private final boolean readable;
+        private final boolean writable;
+        private final boolean simple;
+        //Only fields of final types always use the same serializer
+        private final boolean fixedSerializer;
+        //Child converters are resolved on first use - beans may refer to themselves
+        private volatile SharkSerializer serializer;
+        private volatile SharkDeserializer deserializer;
+
+        public Property(String name, MappedBean<T>.ObjectField field) {
+            this.name = name;
+            this.field = field;
+            this.type = field.getType();
+            this.readable = field.hasGetter();
+            this.writable = field.hasSetter();
+
+            Class clz = type.getType();
+            this.simple = ReflectUtils.isSimple(clz);
+            this.fixedSerializer = (clz.isPrimitive() || Modifier.isFinal(clz.getModifiers()))
+                    && !SharkNode.class.isAssignableFrom(clz);
+        }
+
+        /**
+         * Returns true if values must be read through the instance - e.g. if the actual type depends on the value
+         */
+        private boolean isDynamic() {
+            return type.getType().equals(Object.class)
+                    || SharkNode.class.isAssignableFrom(type.getType());
+        }
+
+        private SharkDeserializer getDeserializer() {
+            SharkDeserializer out = deserializer;
+            if (out == null) {
+                out = bs.getDeserializer(type);
+                deserializer = out;
+            }
+            return out;
+        }
+
+        private SharkSerializer getSerializer(Object value) {
+            SharkSerializer out = serializer;
+            if (out == null) {
+                //Primitive values are boxed - and written by the serializer of the boxed type
+                out = bs.getSerializer(type.getType().isPrimitive() ? value.getClass() : type.getType());
+                serializer = out;
+            }
+            return out;
+        }
+
+        private Object read(SharkNode node) throws MappingException {
+            if (node == null)
+                return null;
+            if (isDynamic())
+                return bs.read(node, type);
+
+            if (!simple
+                    && node.is(SharkNode.NodeType.VALUE)
+                    && ((ValueNode)node).getValue() == null)
+                return null;
+
+            SharkDeserializer converter = getDeserializer();
+            if (converter == null)
+                return bs.read(node, type);
+            return converter.deserialize(bs, node, type);
+        }
+
+        private Object read(SharkStreamReader in) throws MappingException, IOException {
+            if (isDynamic())
+                return bs.read(in, type);
+
+            if (!simple
+                    && in.current() == SharkStreamReader.Token.VALUE
+                    && in.getPrimitiveType() == null
+                    && in.getValue() == null)
+                return null;
+
+            SharkDeserializer converter = getDeserializer();
+            if (converter instanceof SharkStreamDeserializer)
+                return ((SharkStreamDeserializer) converter).deserialize(bs, in, type);
+            return bs.read(in, type);
+        }
+
+        private SharkNode write(Object value) throws MappingException {
+            if (value == null || !fixedSerializer)
+                return bs.write(value);
+
+            SharkSerializer converter = getSerializer(value);
+            if (converter == null)
+                return bs.write(value);
+            return converter.serialize(bs, value);
+        }
+
+        private void write(Object value, SharkStreamWriter out) throws MappingException, IOException {
+            if (value == null || !fixedSerializer) {
+                bs.write(out, value);
+                return;
+            }
+
+            SharkSerializer converter = getSerializer(value);
+            if (converter instanceof SharkStreamSerializer)
+                ((SharkStreamSerializer) converter).serialize(bs, value, out);
+            else
+                bs.write(out, value);
+        }
+    }
+}
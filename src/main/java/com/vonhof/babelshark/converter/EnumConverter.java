@@ -2,16 +2,21 @@ package com.vonhof.babelshark.converter;
 
 import com.vonhof.babelshark.BabelSharkInstance;
 import com.vonhof.babelshark.SharkConverter;
+import com.vonhof.babelshark.SharkStreamDeserializer;
+import com.vonhof.babelshark.SharkStreamReader;
+import com.vonhof.babelshark.SharkStreamSerializer;
+import com.vonhof.babelshark.SharkStreamWriter;
 import com.vonhof.babelshark.exception.MappingException;
 import com.vonhof.babelshark.node.SharkNode;
 import com.vonhof.babelshark.node.SharkType;
 import com.vonhof.babelshark.node.ValueNode;
+import java.io.IOException;
 
 /**
  *
  * @author Henrik Hofmeister <@vonhofdk>
  */
-public class EnumConverter implements SharkConverter<Enum> {
+public class EnumConverter implements SharkConverter<Enum>, SharkStreamSerializer<Enum>, SharkStreamDeserializer<Enum> {
 
     public <U> Enum deserialize(BabelSharkInstance bs, SharkNode node, SharkType<Enum, U> type) throws MappingException {
         if (!node.is(SharkNode.NodeType.VALUE)) {
@@ -20,19 +25,35 @@ public class EnumConverter implements SharkConverter<Enum> {
         }
 
         ValueNode val = (ValueNode) node;
-        if (val.getValue() == null)
+        return convert(val.getValue(), type);
+    }
+
+    public <U> Enum deserialize(BabelSharkInstance bs, SharkStreamReader in, SharkType<Enum, U> type) throws MappingException, IOException {
+        if (in.current() != SharkStreamReader.Token.VALUE) {
+            in.skipValue();
+            bs.reportError("Invalid Enum value");
+            return null;
+        }
+        return convert(in.getValue(), type);
+    }
+
+    private <U> Enum convert(Object value, SharkType<Enum, U> type) {
+        if (value == null)
             return null;
-        if (val.getValue() instanceof String)
-            return Enum.valueOf(type.getType(),(String)val.getValue());
-        if (val.getValue() instanceof Enum)
-            return (Enum) val.getValue();
+        if (value instanceof String)
+            return Enum.valueOf(type.getType(),(String)value);
+        if (value instanceof Enum)
+            return (Enum) value;
         
         return null;
-        
     }
 
     public SharkNode serialize(BabelSharkInstance bs, Enum value) throws MappingException {
         return new ValueNode<String>(value.toString());
     }
 
+    public void serialize(BabelSharkInstance bs, Enum value, SharkStreamWriter out) throws MappingException, IOException {
+        out.writeValue(value.toString());
+    }
+
 }
@@ -3,19 +3,25 @@ package com.vonhof.babelshark.converter;
 import com.vonhof.babelshark.BabelSharkInstance;
 import com.vonhof.babelshark.ReflectUtils;
 import com.vonhof.babelshark.SharkConverter;
+import com.vonhof.babelshark.SharkStreamDeserializer;
+import com.vonhof.babelshark.SharkStreamReader;
+import com.vonhof.babelshark.SharkStreamSerializer;
+import com.vonhof.babelshark.SharkStreamWriter;
 import com.vonhof.babelshark.exception.MappingException;
 import com.vonhof.babelshark.node.ObjectNode;
 import com.vonhof.babelshark.node.SharkNode;
 import com.vonhof.babelshark.node.SharkType;
 import com.vonhof.babelshark.node.ValueNode;
+import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *
  * @author Henrik Hofmeister <@vonhofdk>
  */
-public class MapConverter implements SharkConverter<Map> {
+public class MapConverter implements SharkConverter<Map>, SharkStreamSerializer<Map>, SharkStreamDeserializer<Map> {
     
     @Override
     public <U> Map deserialize(BabelSharkInstance bs, SharkNode node, SharkType<Map, U> type) throws MappingException {
@@ -29,9 +35,44 @@ public class MapConverter implements SharkConverter<Map> {
         }
             
         ObjectNode objNode = (ObjectNode) node;
-        Map<String,U> out = null;
+        Map<String,U> out = newInstance(bs, type);
+        if (out == null)
+            return null;
+        
+        for(String field:objNode.getFields()) {
+            out.put(field, bs.read(objNode.get(field),type.getValueType()));
+        }
+        return out;
+    }
+
+    @Override
+    public <U> Map deserialize(BabelSharkInstance bs, SharkStreamReader in, SharkType<Map, U> type) throws MappingException, IOException {
+        if (in.current() != SharkStreamReader.Token.START_OBJECT) {
+            //Ignore null or empty string values
+            if (in.current() == SharkStreamReader.Token.VALUE && 
+                    (in.getValue() == null || "".equals(String.valueOf(in.getValue()))))
+                return null;
+            in.skipValue();
+            bs.reportError(String.format("Could not convert %s to %s",in.current(),type));
+            return null;
+        }
+        
+        Map<String,U> out = newInstance(bs, type);
+        if (out == null) {
+            in.skipValue();
+            return null;
+        }
+        
+        while(in.next() == SharkStreamReader.Token.FIELD_NAME) {
+            String field = in.getFieldName();
+            in.next();
+            out.put(field, bs.read(in,type.getValueType()));
+        }
+        return out;
+    }
+
+    private <U> Map<String,U> newInstance(BabelSharkInstance bs, SharkType<Map, U> type) throws MappingException {
         try {
-            
             Class clz = type.getType();
             if (!ReflectUtils.isInstantiatable(clz)) {
                 if (Map.class.isAssignableFrom(clz) || Object.class.equals(clz)) {
@@ -42,25 +83,80 @@ public class MapConverter implements SharkConverter<Map> {
                 }
             }
             
-            out = (Map<String, U>) clz.newInstance();
+            return (Map<String, U>) clz.newInstance();
         } catch (Exception ex) {
             throw new MappingException(ex);
         }
-        
-        for(String field:objNode.getFields()) {
-            out.put(field, bs.read(objNode.get(field),type.getValueType()));
-        }
-        return out;
     }
 
     @Override
     public SharkNode serialize(BabelSharkInstance bs, Map instance) throws MappingException {
         ObjectNode out = new ObjectNode(); 
         Map<Object,Object> map = (Map<Object,Object>)instance;
+        ForkJoinPool pool = bs.getParallelPool(map.size());
+        if (pool != null) {
+            Object[] entries = map.entrySet().toArray();
+            SharkNode[] nodes = WriteTask.write(bs, pool, values(entries));
+            for (int i = 0; i < entries.length; i++) {
+                out.put(String.valueOf(((Map.Entry) entries[i]).getKey()), nodes[i]);
+            }
+            return out;
+        }
         for (Map.Entry<Object,Object> entry:map.entrySet()) {
             out.put(String.valueOf(entry.getKey()),bs.write(entry.getValue()));
         }
         return out;
     }
 
+    @Override
+    public void serialize(BabelSharkInstance bs, Map instance, SharkStreamWriter out) throws MappingException, IOException {
+        Map<Object,Object> map = fields(instance);
+        out.writeStartObject();
+        ForkJoinPool pool = bs.getParallelPool(map.size());
+        if (pool != null) {
+            //Values are written to nodes in parallel - and then to the stream in order
+            Object[] entries = map.entrySet().toArray();
+            SharkNode[] nodes = WriteTask.write(bs, pool, values(entries));
+            for (int i = 0; i < entries.length; i++) {
+                out.writeFieldName(String.valueOf(((Map.Entry) entries[i]).getKey()));
+                out.writeNode(nodes[i]);
+            }
+        } else {
+            for (Map.Entry<Object,Object> entry:map.entrySet()) {
+                out.writeFieldName(String.valueOf(entry.getKey()));
+                bs.write(out, entry.getValue());
+            }
+        }
+        out.writeEndObject();
+    }
+
+    private Object[] values(Object[] entries) {
+        Object[] values = new Object[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            values[i] = ((Map.Entry) entries[i]).getValue();
+        }
+        return values;
+    }
+
+    /**
+     * Keys are written as strings - so keys that are not strings may end up as the same field (e.g. 1 and "1").
+     * Those are collapsed the same way as by {@link ObjectNode#put(String, SharkNode)}: the field keeps the 
+     * position of the first key and the value of the last.
+     * @param instance
+     * @return 
+     */
+    private Map<Object,Object> fields(Map instance) {
+        Map<Object,Object> map = (Map<Object,Object>)instance;
+        for (Object key:map.keySet()) {
+            if (!(key instanceof String)) {
+                Map<Object,Object> fields = new LinkedHashMap<Object, Object>();
+                for (Map.Entry<Object,Object> entry:map.entrySet()) {
+                    fields.put(String.valueOf(entry.getKey()), entry.getValue());
+                }
+                return fields;
+            }
+        }
+        return map;
+    }
+
 }
@@ -3,33 +3,107 @@ package com.vonhof.babelshark.converter;
 import com.vonhof.babelshark.BabelSharkInstance;
 import com.vonhof.babelshark.ConvertUtils;
 import com.vonhof.babelshark.SharkConverter;
+import com.vonhof.babelshark.SharkStreamDeserializer;
+import com.vonhof.babelshark.SharkStreamReader;
+import com.vonhof.babelshark.SharkStreamSerializer;
+import com.vonhof.babelshark.SharkStreamWriter;
 import com.vonhof.babelshark.exception.MappingException;
 import com.vonhof.babelshark.node.SharkNode;
 import com.vonhof.babelshark.node.SharkType;
 import com.vonhof.babelshark.node.ValueNode;
-
-import java.util.regex.Pattern;
+import java.io.IOException;
 
 /**
  *
  * @author Henrik Hofmeister <@vonhofdk>
  */
-public class SimpleConverter implements SharkConverter<Object> {
+public class SimpleConverter implements SharkConverter<Object>, SharkStreamSerializer<Object>, SharkStreamDeserializer<Object> {
 
     public SharkNode serialize(BabelSharkInstance bs, Object value) throws MappingException {
         return new ValueNode(value);
     }
 
+    public void serialize(BabelSharkInstance bs, Object value, SharkStreamWriter out) throws MappingException, IOException {
+        out.writeValue(value);
+    }
+
     public <U> Object deserialize(BabelSharkInstance bs, SharkNode node, SharkType<Object,U> type) throws MappingException {
         if (!node.is(SharkNode.NodeType.VALUE)) {
             bs.reportError(String.format("Could not convert %s to %s",node,type));
             return null;
         }
         
-        Class<Object> clz = type.getType();
-        
         ValueNode valueNode = (ValueNode) node;
-        Object o = valueNode.getValue();
+        if (valueNode.getPrimitiveType() != null) {
+            Object out = convertPrimitive(valueNode, type.getType());
+            if (out != null)
+                return out;
+        }
+        return convert(bs, valueNode.getValue(), type);
+    }
+
+    /**
+     * Reads primitive nodes straight into the target type - without boxing the node value first.
+     * Returns null if the node can not be converted this way.
+     */
+    private Object convertPrimitive(ValueNode node, Class clz) {
+        if (node.getPrimitiveType() == boolean.class) {
+            if (clz.equals(Boolean.TYPE) || Boolean.class.equals(clz))
+                return node.getBoolean();
+            return null;
+        }
+        if (clz.equals(Integer.TYPE) || Integer.class.equals(clz))
+            return node.getInt();
+        if (clz.equals(Long.TYPE) || Long.class.equals(clz))
+            return node.getLong();
+        if (clz.equals(Double.TYPE) || Double.class.equals(clz))
+            return node.getDouble();
+        if (clz.equals(Float.TYPE) || Float.class.equals(clz))
+            return node.getPrimitiveType() == double.class
+                    ? (float) node.getDouble()
+                    : (float) node.getLong();
+        return null;
+    }
+
+    public <U> Object deserialize(BabelSharkInstance bs, SharkStreamReader in, SharkType<Object, U> type) throws MappingException, IOException {
+        if (in.current() != SharkStreamReader.Token.VALUE) {
+            in.skipValue();
+            bs.reportError(String.format("Could not convert %s to %s",in.current(),type));
+            return null;
+        }
+        Class primitiveType = in.getPrimitiveType();
+        if (primitiveType != null) {
+            Object out = readPrimitive(in, primitiveType, type.getType());
+            if (out != null)
+                return out;
+        }
+        return convert(bs, in.getValue(), type);
+    }
+
+    /**
+     * Reads primitive values straight into the target type - like {@link #convertPrimitive(ValueNode, Class)}.
+     * Returns null if the value can not be read this way.
+     */
+    private Object readPrimitive(SharkStreamReader in, Class primitiveType, Class clz) throws IOException {
+        if (primitiveType == boolean.class) {
+            if (clz.equals(Boolean.TYPE) || Boolean.class.equals(clz))
+                return in.getBoolean();
+            return null;
+        }
+        boolean decimal = primitiveType == double.class;
+        if (clz.equals(Integer.TYPE) || Integer.class.equals(clz))
+            return decimal ? (int) in.getDouble() : (int) in.getLong();
+        if (clz.equals(Long.TYPE) || Long.class.equals(clz))
+            return decimal ? (long) in.getDouble() : in.getLong();
+        if (clz.equals(Double.TYPE) || Double.class.equals(clz))
+            return decimal ? in.getDouble() : (double) in.getLong();
+        if (clz.equals(Float.TYPE) || Float.class.equals(clz))
+            return decimal ? (float) in.getDouble() : (float) in.getLong();
+        return null;
+    }
+
+    private <U> Object convert(BabelSharkInstance bs, Object o, SharkType<Object,U> type) throws MappingException {
+        Class<Object> clz = type.getType();
         
         if (clz.equals(Object.class) && o != null)
             clz = (Class<Object>) o.getClass();
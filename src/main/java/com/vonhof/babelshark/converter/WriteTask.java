@@ -0,0 +1,60 @@
+package com.vonhof.babelshark.converter;
+
+import com.vonhof.babelshark.BabelSharkInstance;
+import com.vonhof.babelshark.node.SharkNode;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Writes a range of values to nodes - ranges larger than the parallel threshold of the instance are split in
+ * two and written in parallel. Nodes are stored by index so the original order is kept.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+final class WriteTask extends RecursiveAction {
+    private final BabelSharkInstance bs;
+    private final Object[] values;
+    private final SharkNode[] nodes;
+    private final int from;
+    private final int to;
+
+    private WriteTask(BabelSharkInstance bs, Object[] values, SharkNode[] nodes, int from, int to) {
+        this.bs = bs;
+        this.values = values;
+        this.nodes = nodes;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= bs.getParallelThreshold()) {
+            for (int i = from; i < to; i++) {
+                nodes[i] = bs.write(values[i]);
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new WriteTask(bs, values, nodes, from, middle), new WriteTask(bs, values, nodes, middle, to));
+    }
+
+    /**
+     * Write all values using the given pool
+     * @param bs
+     * @param pool
+     * @param values
+     * @return nodes in the same order as the values
+     */
+    static SharkNode[] write(BabelSharkInstance bs, ForkJoinPool pool, Object[] values) {
+        SharkNode[] nodes = new SharkNode[values.length];
+        WriteTask task = new WriteTask(bs, values, nodes, 0, values.length);
+        if (ForkJoinTask.getPool() == pool) {
+            //Nested collection - split within the pool that is already running. Callers running in other 
+            //pools (e.g. the common pool) still hand the work to the configured pool
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+        return nodes;
+    }
+}
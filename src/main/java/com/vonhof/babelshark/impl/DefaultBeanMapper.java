@@ -2,28 +2,96 @@ package com.vonhof.babelshark.impl;
 
 import com.vonhof.babelshark.BeanMapper;
 import com.vonhof.babelshark.MappedBean;
+import com.vonhof.babelshark.ReflectUtils;
 import com.vonhof.babelshark.annotation.Ignore;
 import com.vonhof.babelshark.annotation.Name;
 import com.vonhof.babelshark.exception.MappingException;
 import com.vonhof.babelshark.reflect.ClassInfo;
 import com.vonhof.babelshark.reflect.FieldInfo;
 import com.vonhof.babelshark.reflect.MethodInfo;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DefaultBeanMapper implements BeanMapper {
-    private final Map<ClassInfo,MappedBean> cache = new HashMap<ClassInfo, MappedBean>();
+    /**
+     * Mappings of raw classes. Entries do not keep classes from being unloaded.
+     */
+    private volatile ClassValue<Entry> rawCache = newRawCache();
+    
+    /**
+     * Mappings of classes with generic types
+     */
+    private final ConcurrentMap<ClassInfo,Entry> genericCache = new ConcurrentHashMap<ClassInfo, Entry>();
 
     public <T> MappedBean<T> getMap(Class<T> type) throws MappingException {
         return getMap(ClassInfo.from(type));
     }
+    
     public <T> MappedBean<T> getMap(ClassInfo<T> type) throws MappingException {
-        //Get cached version
-        MappedBean obj = cache.get(type);
-        if (obj != null)
-            return obj;
+        return getEntry(type).get(type);
+    }
+    
+    /**
+     * Use map for its class instead of mapping the class
+     * @param map 
+     */
+    public <T> void register(MappedBean<T> map) {
+        getEntry(map.getClassInfo()).bean = map;
+    }
+    
+    /**
+     * Remove the mappings of type - it will be mapped again next time it is used
+     * @param type 
+     */
+    public void evict(Class type) {
+        rawCache.remove(type);
+        for(ClassInfo classInfo:genericCache.keySet()) {
+            if (classInfo.getType() == type)
+                genericCache.remove(classInfo);
+        }
+    }
+    
+    /**
+     * Remove the mappings of all classes loaded by classLoader - e.g. when redeploying
+     * @param classLoader 
+     */
+    public void evict(ClassLoader classLoader) {
+        for(ClassInfo classInfo:genericCache.keySet()) {
+            //Generic types may refer to classes of the loader as well
+            Class owner = ReflectUtils.getInnermostClass(classInfo.getType(), classInfo.getGenericTypes());
+            if (owner.getClassLoader() == classLoader)
+                genericCache.remove(classInfo);
+        }
+        //Raw mappings can not be listed - start over
+        rawCache = newRawCache();
+    }
+    
+    private Entry getEntry(ClassInfo type) {
+        //Raw class infos are unique for their class
+        if (type == ClassInfo.from(type.getType()))
+            return rawCache.get(type.getType());
         
+        Entry entry = genericCache.get(type);
+        if (entry == null) {
+            entry = new Entry();
+            Entry existing = genericCache.putIfAbsent(type, entry);
+            if (existing != null)
+                entry = existing;
+        }
+        return entry;
+    }
+    
+    private ClassValue<Entry> newRawCache() {
+        return new ClassValue<Entry>() {
+            @Override
+            protected Entry computeValue(Class<?> type) {
+                return new Entry();
+            }
+        };
+    }
+    
+    protected <T> MappedBean<T> createMap(ClassInfo<T> type) throws MappingException {
         //Not a bean
         if (!type.isBean()) {
             throw new MappingException(String.format("Cannot get bean map for class %s. Not a bean!",type.getName()));
@@ -34,9 +102,9 @@ public class DefaultBeanMapper implements BeanMapper {
             throw new MappingException(String.format("Cannot instantiate bean: %s",type.getName()));
         }
         
-        obj = new MappedBean(type);
+        MappedBean<T> obj = new MappedBean<T>(type);
 
-        for(Entry<String,FieldInfo> entry:type.getFields().entrySet()) {
+        for(Map.Entry<String,FieldInfo> entry:type.getFields().entrySet()) {
             FieldInfo f = entry.getValue();
             if (ignoreField(f)) 
                 continue;
@@ -47,8 +115,6 @@ public class DefaultBeanMapper implements BeanMapper {
             obj.addField(fieldName, f,getter,setter);
         }
         
-        cache.put(type,obj);
-        
         return obj;
     }
     
@@ -93,4 +159,22 @@ public class DefaultBeanMapper implements BeanMapper {
         return null;
     }
 
+
+    /**
+     * Mapping of a single class. The class is only mapped once - other threads wait for it
+     */
+    private class Entry {
+        private volatile MappedBean bean;
+        
+        private <T> MappedBean<T> get(ClassInfo<T> type) throws MappingException {
+            MappedBean out = bean;
+            if (out != null)
+                return out;
+            synchronized (this) {
+                if (bean == null)
+                    bean = createMap(type);
+                return bean;
+            }
+        }
+    }
 }
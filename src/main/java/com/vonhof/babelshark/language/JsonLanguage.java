@@ -3,21 +3,29 @@ package com.vonhof.babelshark.language;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vonhof.babelshark.AsyncObjectReader;
 import com.vonhof.babelshark.Input;
+import com.vonhof.babelshark.NodeStreamWriter;
 import com.vonhof.babelshark.ObjectReader;
 import com.vonhof.babelshark.ObjectWriter;
 import com.vonhof.babelshark.Output;
+import com.vonhof.babelshark.SharkAsyncReader;
 import com.vonhof.babelshark.SharkLanguageBase;
+import com.vonhof.babelshark.SharkStreamReader;
+import com.vonhof.babelshark.SharkStreamWriter;
+import com.vonhof.babelshark.StreamingObjectReader;
+import com.vonhof.babelshark.TextObjectWriter;
 import com.vonhof.babelshark.node.ArrayNode;
 import com.vonhof.babelshark.node.ObjectNode;
 import com.vonhof.babelshark.node.SharkNode;
 import com.vonhof.babelshark.node.ValueNode;
 import java.io.IOException;
-import java.util.Iterator;
-
-import org.apache.commons.io.IOUtils;
+import java.nio.CharBuffer;
+import org.apache.commons.io.input.CharSequenceReader;
 
 /**
  *
@@ -28,9 +36,21 @@ public class JsonLanguage extends SharkLanguageBase {
     private final ObjectMapper om = new ObjectMapper(jsonFactory);
     private final Reader reader = new Reader();
     private final Writer writer = new Writer();
+    private final boolean lineDelimited;
 
     public JsonLanguage() {
-        super("json", "application/json","text/json");
+        this("json", false, "application/json","text/json");
+    }
+
+    /**
+     * @param id
+     * @param lineDelimited if true each top level value is a separate line - and the lines are read and written as
+     * if they were the elements of a single top level array.
+     * @param contentTypes 
+     */
+    protected JsonLanguage(String id, boolean lineDelimited, String ... contentTypes) {
+        super(id, contentTypes);
+        this.lineDelimited = lineDelimited;
     }
     
     @Override
@@ -43,7 +63,7 @@ public class JsonLanguage extends SharkLanguageBase {
         return writer;
     }
     
-    public class Reader implements ObjectReader {
+    public class Reader implements StreamingObjectReader, AsyncObjectReader {
 
         @Override
         public String[] getContentTypes() {
@@ -52,70 +72,412 @@ public class JsonLanguage extends SharkLanguageBase {
 
         @Override
         public SharkNode read(Input input) throws IOException {
-            String json = IOUtils.toString(input.getStream(), "UTF-8");
+            SharkStreamReader in = open(input);
             try {
-                JsonNode node = om.readTree(json);
-                return jsonToShark(node);
-            } catch (IOException ex) {
-                throw ex;
-            } catch (Throwable ex) {
-                throw new IOException(IOUtils.toString(input.getStream(), "UTF-8"),ex);
+                in.next();
+                return in.readNode();
+            } finally {
+                in.close();
+            }
+        }
+
+        @Override
+        public SharkStreamReader open(Input input) throws IOException {
+            JsonParser p = createParser(input);
+            if (lineDelimited)
+                return new LineDelimitedStreamReader(p);
+            return new StreamReader(p);
+        }
+
+        /**
+         * Parse bytes and text in memory directly - without copying them through a stream
+         */
+        private JsonParser createParser(Input input) throws IOException {
+            if (input.getBytes() != null)
+                return jsonFactory.createParser(input.getBytes(), input.getOffset(), input.getLength());
+            CharSequence text = input.getText();
+            if (text instanceof String)
+                return jsonFactory.createParser((String) text);
+            if (text instanceof CharBuffer && ((CharBuffer) text).hasArray()) {
+                CharBuffer chars = (CharBuffer) text;
+                return jsonFactory.createParser(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
             }
+            if (text != null)
+                return jsonFactory.createParser(new CharSequenceReader(text));
+            return jsonFactory.createParser(input.getStream());
+        }
+
+        @Override
+        public SharkAsyncReader openAsync() throws IOException {
+            return new NonBlockingReader(jsonFactory.createNonBlockingByteArrayParser());
         }
-        private SharkNode jsonToShark(JsonNode node) {
-            if (node == null || node.isNull())
+
+        /**
+         * Reads the value starting at the given token straight off the parser - without going through a
+         * jackson tree first.
+         * @param p
+         * @param token current token (null if the input is empty)
+         * @return
+         * @throws IOException
+         */
+        private SharkNode readNode(JsonParser p, JsonToken token) throws IOException {
+            if (token == null)
                 return new ValueNode<Object>(null);
-            
-            if (node.isBigDecimal())
-                return new ValueNode(node.decimalValue());
-            if (node.isBigInteger())
-                return new ValueNode(node.bigIntegerValue());
-            if (node.isBoolean())
-                return new ValueNode(node.booleanValue());
-            if (node.isDouble())
-                return new ValueNode(node.doubleValue());
-            if (node.isInt())
-                return new ValueNode(node.intValue());
-            if (node.isLong())
-                return new ValueNode(node.longValue());
-            
-            if (node.isTextual())
-                return new ValueNode(node.textValue());
-            
-            if (node.isArray()) {
-                ArrayNode out = new ArrayNode();
-                for(JsonNode child:node) {
-                    out.add(jsonToShark(child));
+
+            switch (token) {
+                case START_ARRAY:
+                    ArrayNode array = new ArrayNode();
+                    while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+                        array.add(readNode(p, token));
+                    }
+                    return array;
+                case START_OBJECT:
+                    ObjectNode object = new ObjectNode();
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String name = p.getCurrentName();
+                        object.put(name, readNode(p, p.nextToken()));
+                    }
+                    return object;
+            }
+            return readValueNode(p, token);
+        }
+
+        private SharkNode readValueNode(JsonParser p, JsonToken token) throws IOException {
+            switch (token) {
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    //Keep primitive numbers unboxed
+                    switch (p.getNumberType()) {
+                        case INT:
+                            return ValueNode.of(p.getIntValue());
+                        case LONG:
+                            return ValueNode.of(p.getLongValue());
+                        case FLOAT:
+                        case DOUBLE:
+                            return ValueNode.of(p.getDoubleValue());
+                    }
+                    break;
+                case VALUE_TRUE:
+                    return ValueNode.of(true);
+                case VALUE_FALSE:
+                    return ValueNode.of(false);
+            }
+            return new ValueNode(readValue(p, token));
+        }
+
+        private Object readValue(JsonParser p, JsonToken token) throws IOException {
+            switch (token) {
+                case VALUE_STRING:
+                    return p.getText();
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    return readNumber(p);
+                case VALUE_TRUE:
+                    return true;
+                case VALUE_FALSE:
+                    return false;
+                case VALUE_NULL:
+                    return null;
+                case VALUE_EMBEDDED_OBJECT:
+                    return p.getEmbeddedObject();
+            }
+            throw new IOException(String.format("Unexpected token: %s at %s", token, p.getCurrentLocation()));
+        }
+
+        private Object readNumber(JsonParser p) throws IOException {
+            switch (p.getNumberType()) {
+                case INT:
+                    return p.getIntValue();
+                case LONG:
+                    return p.getLongValue();
+                case BIG_INTEGER:
+                    return p.getBigIntegerValue();
+                case BIG_DECIMAL:
+                    return p.getDecimalValue();
+                default:
+                    return p.getDoubleValue();
+            }
+        }
+
+        private class StreamReader implements SharkStreamReader {
+            protected final JsonParser p;
+            protected Token current;
+
+            private StreamReader(JsonParser p) {
+                this.p = p;
+            }
+
+            public Token next() throws IOException {
+                current = toToken(p.nextToken());
+                return current;
+            }
+
+            public Token current() {
+                return current;
+            }
+
+            public String getFieldName() throws IOException {
+                return p.getCurrentName();
+            }
+
+            public Object getValue() throws IOException {
+                return readValue(p, p.getCurrentToken());
+            }
+
+            public Class getPrimitiveType() throws IOException {
+                JsonToken token = p.getCurrentToken();
+                if (token == null)
+                    return null;
+                switch (token) {
+                    case VALUE_NUMBER_INT:
+                    case VALUE_NUMBER_FLOAT:
+                        switch (p.getNumberType()) {
+                            case INT:
+                                return int.class;
+                            case LONG:
+                                return long.class;
+                            case FLOAT:
+                            case DOUBLE:
+                                return double.class;
+                        }
+                        return null;
+                    case VALUE_TRUE:
+                    case VALUE_FALSE:
+                        return boolean.class;
                 }
-                return out;
+                return null;
             }
-            
-            if (node.isObject()) {
-                ObjectNode out = new ObjectNode();
-                Iterator<String> fields = node.fieldNames();
-                while(fields.hasNext()) {
-                    String name = fields.next();
-                    JsonNode entry = node.get(name);
-                    out.put(name,jsonToShark(entry));
+
+            public long getLong() throws IOException {
+                return p.getLongValue();
+            }
+
+            public double getDouble() throws IOException {
+                return p.getDoubleValue();
+            }
+
+            public boolean getBoolean() throws IOException {
+                return p.getBooleanValue();
+            }
+
+            public void skipValue() throws IOException {
+                p.skipChildren();
+                current = toToken(p.getCurrentToken());
+            }
+
+            public SharkNode readNode() throws IOException {
+                SharkNode node = Reader.this.readNode(p, p.getCurrentToken());
+                current = toToken(p.getCurrentToken());
+                return node;
+            }
+
+            public void close() throws IOException {
+                p.close();
+            }
+
+            protected Token toToken(JsonToken token) {
+                if (token == null)
+                    return null;
+                switch (token) {
+                    case START_OBJECT:
+                        return Token.START_OBJECT;
+                    case END_OBJECT:
+                        return Token.END_OBJECT;
+                    case START_ARRAY:
+                        return Token.START_ARRAY;
+                    case END_ARRAY:
+                        return Token.END_ARRAY;
+                    case FIELD_NAME:
+                        return Token.FIELD_NAME;
                 }
-                return out;
+                return Token.VALUE;
+            }
+        }
+
+        /**
+         * Builds the node tree as tokens become available from the non-blocking parser. When line delimited all 
+         * top level values are collected in a single top level array.
+         */
+        private class NonBlockingReader implements SharkAsyncReader {
+            private final JsonParser p;
+            private final ByteArrayFeeder feeder;
+            private final NodeStreamWriter out = new NodeStreamWriter();
+            private int depth = 0;
+
+            private NonBlockingReader(JsonParser p) throws IOException {
+                this.p = p;
+                this.feeder = (ByteArrayFeeder) p.getNonBlockingInputFeeder();
+                if (lineDelimited)
+                    out.writeStartArray();
+            }
+
+            public SharkNode feed(byte[] data, int offset, int length) throws IOException {
+                feeder.feedInput(data, offset, offset + length);
+                return parse();
+            }
+
+            public SharkNode endOfInput() throws IOException {
+                feeder.endOfInput();
+                SharkNode root = parse();
+                if (root != null)
+                    return root;
+                if (depth > 0)
+                    throw new IOException(String.format("Unexpected end of input at %s", p.getCurrentLocation()));
+                if (lineDelimited) {
+                    out.writeEndArray();
+                    return out.getRoot();
+                }
+                return new ValueNode<Object>(null);
+            }
+
+            /**
+             * Read all available tokens
+             * @return the root node if it is complete
+             */
+            private SharkNode parse() throws IOException {
+                JsonToken token;
+                while ((token = p.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                    switch (token) {
+                        case START_OBJECT:
+                            out.writeStartObject();
+                            depth++;
+                            break;
+                        case START_ARRAY:
+                            out.writeStartArray();
+                            depth++;
+                            break;
+                        case END_OBJECT:
+                            out.writeEndObject();
+                            depth--;
+                            break;
+                        case END_ARRAY:
+                            out.writeEndArray();
+                            depth--;
+                            break;
+                        case FIELD_NAME:
+                            out.writeFieldName(p.getCurrentName());
+                            continue;
+                        default:
+                            out.writeNode(readValueNode(p, token));
+                    }
+                    if (depth == 0 && !lineDelimited)
+                        return out.getRoot();
+                }
+                return null;
+            }
+
+            public void close() throws IOException {
+                p.close();
+            }
+        }
+
+        /**
+         * Presents the top level values of the input as the elements of a single top level array
+         */
+        private class LineDelimitedStreamReader extends StreamReader {
+            private boolean started = false;
+            private boolean ended = false;
+            //True if current token is the start or end of the virtual top level array
+            private boolean virtual = false;
+
+            private LineDelimitedStreamReader(JsonParser p) {
+                super(p);
+            }
+
+            @Override
+            public Token next() throws IOException {
+                if (!started) {
+                    started = true;
+                    virtual = true;
+                    current = Token.START_ARRAY;
+                    return current;
+                }
+                JsonToken token = ended ? null : p.nextToken();
+                if (token == null && !ended) {
+                    ended = true;
+                    virtual = true;
+                    current = Token.END_ARRAY;
+                    return current;
+                }
+                virtual = false;
+                current = toToken(token);
+                return current;
+            }
+
+            @Override
+            public void skipValue() throws IOException {
+                if (!virtual || current != Token.START_ARRAY) {
+                    super.skipValue();
+                    return;
+                }
+                while (next() != Token.END_ARRAY) {
+                    super.skipValue();
+                }
+            }
+
+            @Override
+            public SharkNode readNode() throws IOException {
+                if (!virtual || current != Token.START_ARRAY)
+                    return super.readNode();
+                ArrayNode array = new ArrayNode();
+                while (next() != Token.END_ARRAY) {
+                    array.add(super.readNode());
+                }
+                return array;
             }
-            throw new UnknownError(String.format("Unkown node type: %s",node));
         }
         
     }
     
-    public class Writer implements ObjectWriter {
+    public class Writer implements TextObjectWriter {
 
         public String getContentType() {
             return JsonLanguage.this.getContentTypes()[0];
         }
 
         public void write(Output output, SharkNode node) throws IOException {
-            JsonGenerator g = jsonFactory.createJsonGenerator(output.getStream(), JsonEncoding.UTF8);
-            writeNode(g, node);
-            g.close();
+            SharkStreamWriter out = open(output);
+            out.writeNode(node);
+            out.close();
+        }
+
+        public SharkStreamWriter open(Output output) throws IOException {
+            return open(jsonFactory.createGenerator(output.getStream(), JsonEncoding.UTF8));
+        }
+
+        public SharkStreamWriter open(java.io.Writer out) throws IOException {
+            return open(jsonFactory.createGenerator(out));
         }
+
+        private SharkStreamWriter open(JsonGenerator g) {
+            if (lineDelimited) {
+                g.setRootValueSeparator(null);
+                return new LineDelimitedStreamWriter(g);
+            }
+            return new StreamWriter(g);
+        }
+
+        private void writeValue(JsonGenerator g,Object value) throws IOException {
+            //Common values are written directly - writeObject goes through the object mapper, which also 
+            //flushes the output after every value
+            if (value == null)
+                g.writeNull();
+            else if (value instanceof String)
+                g.writeString((String) value);
+            else if (value instanceof Enum)
+                g.writeString(((Enum) value).name());
+            else if (value instanceof Integer)
+                g.writeNumber((Integer) value);
+            else if (value instanceof Long)
+                g.writeNumber((Long) value);
+            else if (value instanceof Double)
+                g.writeNumber((Double) value);
+            else if (value instanceof Boolean)
+                g.writeBoolean((Boolean) value);
+            else
+                g.writeObject(value);
+        }
+
         private void writeNode(JsonGenerator g,SharkNode node) throws IOException {
             if (node == null) {
                 g.writeNull();
@@ -123,10 +485,16 @@ public class JsonLanguage extends SharkLanguageBase {
             }
         
             if (node instanceof ValueNode) {
-                Object value = ((ValueNode)node).getValue();
-                if (value instanceof Enum)
-                    value = ((Enum)value).name();
-                g.writeObject(value);
+                ValueNode valueNode = (ValueNode) node;
+                Class primitiveType = valueNode.getPrimitiveType();
+                if (primitiveType == null)
+                    writeValue(g, valueNode.getValue());
+                else if (primitiveType == boolean.class)
+                    g.writeBoolean(valueNode.getBoolean());
+                else if (primitiveType == double.class)
+                    g.writeNumber(valueNode.getDouble());
+                else
+                    g.writeNumber(valueNode.getLong());
                 return;
             }
             if (node instanceof ArrayNode) {
@@ -151,6 +519,151 @@ public class JsonLanguage extends SharkLanguageBase {
             
             throw new UnknownError(String.format("Unkown node type: %s",node));
         }
+
+        private class StreamWriter implements SharkStreamWriter {
+            protected final JsonGenerator g;
+
+            private StreamWriter(JsonGenerator g) {
+                this.g = g;
+            }
+
+            public void writeStartObject() throws IOException {
+                g.writeStartObject();
+            }
+
+            public void writeFieldName(String name) throws IOException {
+                g.writeFieldName(name);
+            }
+
+            public void writeEndObject() throws IOException {
+                g.writeEndObject();
+            }
+
+            public void writeStartArray() throws IOException {
+                g.writeStartArray();
+            }
+
+            public void writeEndArray() throws IOException {
+                g.writeEndArray();
+            }
+
+            public void writeValue(Object value) throws IOException {
+                Writer.this.writeValue(g, value);
+            }
+
+            public void writeValue(long value) throws IOException {
+                g.writeNumber(value);
+            }
+
+            public void writeValue(double value) throws IOException {
+                g.writeNumber(value);
+            }
+
+            public void writeValue(boolean value) throws IOException {
+                g.writeBoolean(value);
+            }
+
+            public void writeNode(SharkNode node) throws IOException {
+                Writer.this.writeNode(g, node);
+            }
+
+            public void flush() throws IOException {
+                g.flush();
+            }
+
+            public void close() throws IOException {
+                g.close();
+            }
+        }
+
+        /**
+         * Writes the elements of a top level array - or a single top level value - as separate lines
+         */
+        private class LineDelimitedStreamWriter extends StreamWriter {
+            private int depth = 0;
+            //True if inside the virtual top level array
+            private boolean records = false;
+
+            private LineDelimitedStreamWriter(JsonGenerator g) {
+                super(g);
+            }
+
+            @Override
+            public void writeStartObject() throws IOException {
+                super.writeStartObject();
+                depth++;
+            }
+
+            @Override
+            public void writeEndObject() throws IOException {
+                super.writeEndObject();
+                depth--;
+                endValue();
+            }
+
+            @Override
+            public void writeStartArray() throws IOException {
+                if (depth == 0 && !records) {
+                    records = true;
+                    return;
+                }
+                super.writeStartArray();
+                depth++;
+            }
+
+            @Override
+            public void writeEndArray() throws IOException {
+                if (depth == 0 && records) {
+                    records = false;
+                    return;
+                }
+                super.writeEndArray();
+                depth--;
+                endValue();
+            }
+
+            @Override
+            public void writeValue(Object value) throws IOException {
+                super.writeValue(value);
+                endValue();
+            }
+
+            @Override
+            public void writeValue(long value) throws IOException {
+                super.writeValue(value);
+                endValue();
+            }
+
+            @Override
+            public void writeValue(double value) throws IOException {
+                super.writeValue(value);
+                endValue();
+            }
+
+            @Override
+            public void writeValue(boolean value) throws IOException {
+                super.writeValue(value);
+                endValue();
+            }
+
+            @Override
+            public void writeNode(SharkNode node) throws IOException {
+                if (depth == 0 && !records && node instanceof ArrayNode) {
+                    for(SharkNode child:(ArrayNode) node) {
+                        super.writeNode(child);
+                        endValue();
+                    }
+                    return;
+                }
+                super.writeNode(node);
+                endValue();
+            }
+
+            private void endValue() throws IOException {
+                if (depth == 0)
+                    g.writeRaw('\n');
+            }
+        }
     }
 
 }
@@ -0,0 +1,15 @@
+package com.vonhof.babelshark.language;
+
+/**
+ * Newline delimited JSON - one JSON value per line.
+ * 
+ * The lines are read and written as the elements of a single top level array - so a list of records is written as
+ * one record per line, and reading yields a list of all records.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class NdJsonLanguage extends JsonLanguage {
+
+    public NdJsonLanguage() {
+        super("ndjson", true, "application/x-ndjson", "application/ndjson");
+    }
+}
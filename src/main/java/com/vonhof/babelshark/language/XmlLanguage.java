@@ -6,21 +6,21 @@ import com.vonhof.babelshark.node.ObjectNode;
 import com.vonhof.babelshark.node.SharkNode;
 import com.vonhof.babelshark.node.ValueNode;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import org.apache.commons.io.input.CharSequenceReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.w3c.dom.*;
-import sun.misc.IOUtils;
 
 /**
  *
@@ -29,8 +29,16 @@ import sun.misc.IOUtils;
 public class XmlLanguage extends SharkLanguageBase {
     private final static Logger log = LogManager.getLogger(XmlLanguage.class);
 
+    private final static String ROOT_NAME = "out";
     private final static String LIST_ENTRY_NAME = "entry";
-    private final static DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    private final static byte[] XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>".getBytes(Charset.forName("UTF-8"));
+    private final static XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    private final static XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    
+    static {
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
     
     private final Reader reader = new Reader();
     private final Writer writer = new Writer();
@@ -54,128 +62,98 @@ public class XmlLanguage extends SharkLanguageBase {
         }
 
         public SharkNode read(Input input) throws IOException {
+            XMLStreamReader xml = null;
             try {
-                DocumentBuilder docBuilder = factory.newDocumentBuilder();
-                Document doc = docBuilder.parse(input.getStream());
-                
-                return xmlToShark(doc);
-            } catch (Throwable ex) {
-                byte[] body = IOUtils.readFully(input.getStream(),0, true);
-                throw new IOException(new String(body),ex);
-            }
-        }
-        private SharkNode xmlToShark(Document node) {
-            if (node == null)
-                return new ValueNode<Object>(null);
-            //Documents should only have 1 child
-            return xmlToShark(node.getFirstChild());
-        }
-        
-        private List<Node> getChildren(Node node,short type) {
-            List<Node> out = new ArrayList<Node>();
-            if (node.hasChildNodes()) {
-                NodeList children = node.getChildNodes();
-                for(int i = 0; i < children.getLength();i++) {
-                    Node child = children.item(i);
-                    if (child.getNodeType() == type)
-                        out.add(child);
+                //Text is read as is - without encoding it to bytes first
+                xml = input.getText() != null
+                        ? inputFactory.createXMLStreamReader(new CharSequenceReader(input.getText()))
+                        : inputFactory.createXMLStreamReader(input.getStream());
+                while (xml.hasNext()) {
+                    //Documents should only have 1 root element
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT)
+                        return readElement(xml);
                 }
+                return new ValueNode<Object>(null);
+            } catch (XMLStreamException ex) {
+                throw new IOException(ex.getMessage(), ex);
+            } finally {
+                close(xml);
             }
-            return out;
-        }
-        private boolean isArray(Node node) {
-            if (!node.hasChildNodes())
-                return false;
-            List<Node> children = getChildren(node,Node.ELEMENT_NODE);
-            if (children.isEmpty())
-                return false;
-            String lastName = null;
-            for(Node child:children) {
-                String nodeName = child.getNodeName();
-                if (lastName == null)
-                    lastName = nodeName;
-                if (!nodeName.equalsIgnoreCase(lastName))
-                    return false;
-            }
-            return true;
         }
         
-        private boolean isObject(Node node) {
-            if (!node.hasChildNodes())
-                return false;
-            List<Node> children = getChildren(node,Node.ELEMENT_NODE);
-            if (children.isEmpty())
-                return false;
-            String lastName = null;
-            for(Node child:children) {
-                String nodeName = child.getNodeName();
-                if (lastName == null)
-                    lastName = nodeName;
-                else if (nodeName.equalsIgnoreCase(lastName))
-                    return false;
-            }
-            return true;
-        }
-        private boolean isValue(Node node) {
-            if (isArray(node) || isObject(node)) 
-                return false;
-            if (node.hasChildNodes()) {
-                NodeList children = node.getChildNodes();
-                for(int i = 0; i < children.getLength();i++) {
-                    Node child = children.item(i);
-                    switch(child.getNodeType()) {
-                        case Node.CDATA_SECTION_NODE:
-                        case Node.TEXT_NODE:
-                            return true;
-                    }
-                }
+        private void close(XMLStreamReader xml) {
+            if (xml == null)
+                return;
+            try {
+                xml.close();
+            } catch (XMLStreamException ex) {
+                log.warn("Failed to close XML reader", ex);
             }
-            return node.getNodeValue() != null && !node.getNodeValue().isEmpty();
         }
-        private String getValue(Node node) {
-            if (node.hasChildNodes()) {
-                NodeList children = node.getChildNodes();
-                for(int i = 0; i < children.getLength();i++) {
-                    Node child = children.item(i);
-                    switch(child.getNodeType()) {
-                        case Node.CDATA_SECTION_NODE:
-                        case Node.TEXT_NODE:
-                            return child.getNodeValue();
-                    }
-                }
-            }
-            return node.getNodeValue();
+        
+        private String getName(XMLStreamReader xml) {
+            String prefix = xml.getPrefix();
+            if (prefix == null || prefix.isEmpty())
+                return toFieldName(xml.getLocalName());
+            return toFieldName(prefix + ":" + xml.getLocalName());
         }
-        private SharkNode xmlToShark(Node node) {
-            if (node == null)
-                return new ValueNode<Object>(null);
-            
-            
-            if (isArray(node)) {
-                ArrayNode out = new ArrayNode();
-                List<Node> children = getChildren(node, Node.ELEMENT_NODE);
-                for(Node child:children) {
-                    out.add(xmlToShark(child));
-                    
-                }
-                return out;
-            }
+        
+        /**
+         * Reads the element the reader is positioned at - up to and including its end tag.
+         * 
+         * Whether the element is an array (all child elements share the same name), an object (no child element 
+         * has the same name as the first) or a value is decided as the children are read - so every node is 
+         * only visited once.
+         * @param xml
+         * @return
+         * @throws XMLStreamException 
+         */
+        private SharkNode readElement(XMLStreamReader xml) throws XMLStreamException {
+            List<String> names = null;
+            List<SharkNode> children = null;
+            boolean isArray = true;
+            boolean isObject = true;
+            String text = null;
             
-            if (isObject(node)) {
-                ObjectNode out = new ObjectNode();
-                List<Node> children = getChildren(node, Node.ELEMENT_NODE);
-                for(Node child:children) {
-                    out.put(child.getNodeName(),xmlToShark(child));
+            while(true) {
+                switch(xml.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        String name = getName(xml);
+                        if (names == null) {
+                            names = new ArrayList<String>();
+                            children = new ArrayList<SharkNode>();
+                        } else if (name.equalsIgnoreCase(names.get(0))) {
+                            isObject = false;
+                        } else {
+                            isArray = false;
+                        }
+                        names.add(name);
+                        children.add(readElement(xml));
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (text == null)
+                            text = xml.getText();
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (children != null && isArray) {
+                            ArrayNode out = new ArrayNode();
+                            for(SharkNode child:children) {
+                                out.add(child);
+                            }
+                            return out;
+                        }
+                        if (children != null && isObject) {
+                            ObjectNode out = new ObjectNode();
+                            for(int i = 0; i < children.size(); i++) {
+                                out.put(names.get(i),children.get(i));
+                            }
+                            return out;
+                        }
+                        return new ValueNode(text);
                 }
-                return out;
-            }
-            if (isValue(node)) {
-                String value = getValue(node);
-                if (value != null)
-                    return new ValueNode(value);
-                
             }
-            return new ValueNode(null);
         }
         
     }
@@ -187,66 +165,122 @@ public class XmlLanguage extends SharkLanguageBase {
         }
 
         public void write(Output output, SharkNode node) throws IOException {
+            OutputStream stream = output.getStream();
+            stream.write(XML_DECLARATION);
             try {
-                DocumentBuilder docBuilder = factory.newDocumentBuilder();
-                Document doc = docBuilder.newDocument();
-                
-                Element rootNode = doc.createElement("out");
-                doc.appendChild(rootNode);
-                Node out = writeNode(rootNode,doc,node);
-                rootNode.appendChild(out);
-                
-                TransformerFactory transformerFactory = TransformerFactory.newInstance();
-		Transformer transformer = transformerFactory.newTransformer();
-		DOMSource source = new DOMSource(doc);
-                
-                transformer.transform(source, new StreamResult(output.getStream()));
-                
-            } catch (TransformerException ex) {
-                log.error("Failed to parse XML", ex);
-            } catch (ParserConfigurationException ex) {
-                log.error("Failed to parse XML", ex);
+                XMLStreamWriter xml = outputFactory.createXMLStreamWriter(stream, "UTF-8");
+                writeElement(xml, ROOT_NAME, node);
+                xml.flush();
+                xml.close();
+            } catch (XMLStreamException ex) {
+                throw new IOException(ex.getMessage(), ex);
+            }
+        }
+        
+        private void writeElement(XMLStreamWriter xml,String name,SharkNode node) throws XMLStreamException {
+            if (isEmpty(node)) {
+                xml.writeEmptyElement(name);
+                writeAttributes(xml, node);
+                return;
             }
+            xml.writeStartElement(name);
+            writeAttributes(xml, node);
+            writeContent(xml, node);
+            xml.writeEndElement();
         }
-        private Node writeNode(Node parent,Document doc,SharkNode node) throws IOException {
+        
+        private boolean isEmpty(SharkNode node) {
             if (node instanceof ValueNode) {
-                return doc.createTextNode(String.valueOf(((ValueNode)node).getValue()));
+                return String.valueOf(((ValueNode)node).getValue()).isEmpty();
             }
             if (node instanceof ArrayNode) {
-                ArrayNode array = (ArrayNode) node;
-                DocumentFragment listNode = doc.createDocumentFragment();
-                
-                for(SharkNode child:array) {
-                    Element elm = doc.createElement(LIST_ENTRY_NAME);
-                    Node entryNode = writeNode(elm,doc,child);
-                    elm.appendChild(entryNode);
-                    listNode.appendChild(elm);
+                return ((ArrayNode)node).size() == 0;
+            }
+            if (node instanceof ObjectNode) {
+                ObjectNode object = (ObjectNode) node;
+                for(String field:object.getFields()) {
+                    if (!object.get(field).isAttribute())
+                        return false;
                 }
-                return listNode;
+            }
+            return true;
+        }
+        
+        private void writeAttributes(XMLStreamWriter xml,SharkNode node) throws XMLStreamException {
+            if (!(node instanceof ObjectNode))
+                return;
+            ObjectNode object = (ObjectNode) node;
+            List<String> attributes = null;
+            for(String field:object.getFields()) {
+                if (!object.get(field).isAttribute())
+                    continue;
+                if (attributes == null)
+                    attributes = new ArrayList<String>();
+                attributes.add(field);
+            }
+            if (attributes == null)
+                return;
+            
+            //Attributes are written in name order
+            Collections.sort(attributes);
+            for(String field:attributes) {
+                ValueNode value = (ValueNode) object.get(field);
+                xml.writeAttribute(field, String.valueOf(value.getValue()));
+            }
+        }
+        
+        private void writeContent(XMLStreamWriter xml,SharkNode node) throws XMLStreamException {
+            if (node instanceof ValueNode) {
+                writeText(xml, String.valueOf(((ValueNode)node).getValue()));
+                return;
+            }
+            if (node instanceof ArrayNode) {
+                for(SharkNode child:(ArrayNode) node) {
+                    writeElement(xml, LIST_ENTRY_NAME, child);
+                }
+                return;
             }
             if (node instanceof ObjectNode) {
-                
-                DocumentFragment structNode = doc.createDocumentFragment();
                 ObjectNode object = (ObjectNode) node;
-                
                 for(String field:object.getFields()) {
                     SharkNode childNode = object.get(field);
-                    if (childNode.isAttribute() && parent != null && parent instanceof Element) {
-                        ValueNode value = (ValueNode) childNode;
-                        ((Element)parent).setAttribute(field,String.valueOf(value.getValue()));
+                    if (childNode.isAttribute())
                         continue;
-                    }
-                    Element elm = doc.createElement(field);
-                    Node entryNode = writeNode(elm,doc, childNode);
-                    elm.appendChild(entryNode);
-                    structNode.appendChild(elm);
+                    writeElement(xml, field, childNode);
                 }
-                
-                return structNode;
+                return;
             }
             
             throw new UnknownError(String.format("Unkown node type: %s",node));
         }
+        
+        /**
+         * Writes text - using character references for control characters and characters outside the BMP
+         * @param xml
+         * @param text
+         * @throws XMLStreamException 
+         */
+        private void writeText(XMLStreamWriter xml,String text) throws XMLStreamException {
+            char[] chars = text.toCharArray();
+            int start = 0;
+            for(int i = 0; i < chars.length; i++) {
+                char c = chars[i];
+                boolean control = (c < 0x20 && c != '\t' && c != '\n') 
+                                    || (c >= 0x7F && c <= 0x9F);
+                if (!control && !Character.isHighSurrogate(c))
+                    continue;
+                
+                if (i > start)
+                    xml.writeCharacters(chars, start, i - start);
+                
+                int codePoint = Character.codePointAt(chars, i);
+                xml.writeEntityRef("#" + codePoint);
+                i += Character.charCount(codePoint) - 1;
+                start = i + 1;
+            }
+            if (start < chars.length)
+                xml.writeCharacters(chars, start, chars.length - start);
+        }
     }
 
 }
@@ -48,7 +48,7 @@ public final class ArrayNode extends SharkNode implements Iterable<SharkNode> {
     
     public void add(int ... values) {
         for(int value:values)
-            add(new ValueNode(value));
+            add(ValueNode.of(value));
     }
     
     public void add(float ... values) {
@@ -58,12 +58,12 @@ public final class ArrayNode extends SharkNode implements Iterable<SharkNode> {
     
     public void add(double ... values) {
         for(double value:values)
-            add(new ValueNode(value));
+            add(ValueNode.of(value));
     }
     
     public void add(long... values) {
         for(long value:values)
-            add(new ValueNode(value));
+            add(ValueNode.of(value));
     }
     
     public void add(Date ... values) {
@@ -73,7 +73,7 @@ public final class ArrayNode extends SharkNode implements Iterable<SharkNode> {
     
     public void add(boolean ... values) {
         for(boolean value:values)
-            add(new ValueNode(value));
+            add(ValueNode.of(value));
     }
     
     public void add(Enum ... values) {
@@ -2,7 +2,6 @@ package com.vonhof.babelshark.node;
 
 import com.vonhof.babelshark.annotation.Name;
 import java.util.*;
-import java.util.Map.Entry;
 
 /**
  *
@@ -10,25 +9,79 @@ import java.util.Map.Entry;
  */
 @Name("Object")
 public final class ObjectNode extends SharkNode {
-    private final Map<String,SharkNode> fields = new LinkedHashMap<String, SharkNode>();
+    /**
+     * Objects with more fields than this get an index for looking up fields
+     */
+    private static final int INDEX_THRESHOLD = 16;
+    private static final String[] NO_NAMES = new String[0];
+    private static final SharkNode[] NO_NODES = new SharkNode[0];
+    
+    //Field names and values in insertion order
+    private String[] names = NO_NAMES;
+    private SharkNode[] nodes = NO_NODES;
+    private int size;
+    //Position of fields by name - only for large objects
+    private Map<String,Integer> index;
+    private int modCount;
 
     public ObjectNode() {
         super(NodeType.MAP);
     }
     
     public Collection<String> getFields() {
-        return Collections.unmodifiableCollection(fields.keySet());
+        return new FieldNames();
     }
     
     public SharkNode get(String fieldName) {
-        return fields.get(fieldName);
+        int i = indexOf(fieldName);
+        return i > -1 ? nodes[i] : null;
     }
     
     public <T extends SharkNode> T put(String fieldName,T node) {
-        fields.put(fieldName,node);
+        int i = indexOf(fieldName);
+        if (i > -1) {
+            nodes[i] = node;
+            return node;
+        }
+        
+        if (size == names.length) {
+            int capacity = size < 4 ? 4 : size * 2;
+            names = Arrays.copyOf(names, capacity);
+            nodes = Arrays.copyOf(nodes, capacity);
+        }
+        names[size] = fieldName;
+        nodes[size] = node;
+        size++;
+        modCount++;
+        
+        if (index != null) {
+            index.put(fieldName, size - 1);
+        } else if (size > INDEX_THRESHOLD) {
+            buildIndex();
+        }
         return node;
     }
     
+    private int indexOf(String fieldName) {
+        if (index != null) {
+            Integer i = index.get(fieldName);
+            return i != null ? i : -1;
+        }
+        for(int i = 0; i < size; i++) {
+            String name = names[i];
+            if (name == fieldName || (name != null && name.equals(fieldName)))
+                return i;
+        }
+        return -1;
+    }
+    
+    private void buildIndex() {
+        index = new HashMap<String, Integer>(size * 2);
+        for(int i = 0; i < size; i++) {
+            index.put(names[i], i);
+        }
+    }
+    
     public ObjectNode putObject(String fieldName) {
         ObjectNode out = this.getObject(fieldName);
         if (out != null) {
@@ -50,7 +103,7 @@ public final class ObjectNode extends SharkNode {
     }
     
     public ValueNode put(String fieldName, int value) {
-        return put(fieldName,new ValueNode(value));
+        return put(fieldName,ValueNode.of(value));
     }
     
     public ValueNode put(String fieldName, float value) {
@@ -58,10 +111,10 @@ public final class ObjectNode extends SharkNode {
     }
     
     public ValueNode put(String fieldName, double value) {
-        return put(fieldName,new ValueNode(value));
+        return put(fieldName,ValueNode.of(value));
     }
     public ValueNode put(String fieldName, long value) {
-        return put(fieldName,new ValueNode(value));
+        return put(fieldName,ValueNode.of(value));
     }
     
     public ValueNode put(String fieldName, Date value) {
@@ -69,7 +122,7 @@ public final class ObjectNode extends SharkNode {
     }
     
     public ValueNode put(String fieldName, boolean value) {
-        return put(fieldName,new ValueNode(value));
+        return put(fieldName,ValueNode.of(value));
     }
     
     public ValueNode put(String fieldName, Enum value) {
@@ -81,14 +134,14 @@ public final class ObjectNode extends SharkNode {
         StringBuilder sb = new StringBuilder();
         sb.append("{");
         boolean first = true;
-        for(Entry<String,SharkNode> entry:fields.entrySet()) {
+        for(int i = 0; i < size; i++) {
             if (first)
                 first = false;
             else
                 sb.append(",");
-            sb.append(entry.getKey());
+            sb.append(names[i]);
             sb.append("=");
-            sb.append(entry.getValue());
+            sb.append(nodes[i]);
         }
         sb.append("}");
         return sb.toString();
@@ -100,17 +153,34 @@ public final class ObjectNode extends SharkNode {
         if (!super.equals(obj))
             return false;
         
+        //Same as comparing maps - field order does not matter
         final ObjectNode other = (ObjectNode) obj;
-        if (this.fields != other.fields && (this.fields == null || !this.fields.equals(other.fields))) {
+        if (this.size != other.size) {
             return false;
         }
+        for(int i = 0; i < size; i++) {
+            int j = other.indexOf(names[i]);
+            if (j < 0) {
+                return false;
+            }
+            SharkNode node = nodes[i];
+            if (node == null ? other.nodes[j] != null : !node.equals(other.nodes[j])) {
+                return false;
+            }
+        }
         return true;
     }
 
     @Override
     public int hashCode() {
+        //Same as the hash code of a map of the fields
+        int fieldsHash = 0;
+        for(int i = 0; i < size; i++) {
+            fieldsHash += (names[i] != null ? names[i].hashCode() : 0) 
+                            ^ (nodes[i] != null ? nodes[i].hashCode() : 0);
+        }
         int hash = super.hashCode();
-        hash = 59 * hash + (this.fields != null ? this.fields.hashCode() : 0);
+        hash = 59 * hash + fieldsHash;
         return hash;
     }
     
@@ -160,11 +230,74 @@ public final class ObjectNode extends SharkNode {
 
     public void remove(String ... fields) {
         for(String field : fields) {
-            this.fields.remove(field);
+            int i = indexOf(field);
+            if (i < 0)
+                continue;
+            
+            size--;
+            System.arraycopy(names, i + 1, names, i, size - i);
+            System.arraycopy(nodes, i + 1, nodes, i, size - i);
+            names[size] = null;
+            nodes[size] = null;
+            modCount++;
+            
+            if (index != null) {
+                if (size > INDEX_THRESHOLD)
+                    buildIndex();
+                else
+                    index = null;
+            }
         }
     }
 
     public Map<String, SharkNode> toMap() {
-        return new HashMap<>(fields);
+        Map<String, SharkNode> out = new HashMap<>(size * 2);
+        for(int i = 0; i < size; i++) {
+            out.put(names[i], nodes[i]);
+        }
+        return out;
+    }
+    
+    /**
+     * Read only view of the field names
+     */
+    private class FieldNames extends AbstractCollection<String> {
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private final int expectedModCount = modCount;
+                private int next = 0;
+                
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public String next() {
+                    if (modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    if (next >= size)
+                        throw new NoSuchElementException();
+                    return names[next++];
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && indexOf((String) o) > -1;
+        }
     }
 }
@@ -7,6 +7,8 @@ import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  *
@@ -14,17 +16,67 @@ import java.lang.reflect.TypeVariable;
  */
 public final class SharkType<T,U> {
 
+    /**
+     * Types of raw classes
+     */
+    private static final ClassValue<SharkType> rawTypes = new ClassValue<SharkType>() {
+        @Override
+        protected SharkType computeValue(Class<?> type) {
+            return SharkType.get(ClassInfo.from(type));
+        }
+    };
+    
+    /**
+     * All types - kept with the innermost class of the type and its value types. Types only refer to classes of 
+     * that class loader and its parents - so they do not keep classes of other loaders from being unloaded.
+     */
+    private static final ClassValue<ConcurrentMap<Key,SharkType>> types = new ClassValue<ConcurrentMap<Key,SharkType>>() {
+        @Override
+        protected ConcurrentMap<Key,SharkType> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<Key,SharkType>();
+        }
+    };
+
     private final Class<T> type;
     private final SharkType<U,?> valueType;
+    //Class the type is kept with
+    private final Class owner;
     private final boolean collection;
     private final boolean map;
-    private Boolean array = null;
+    private final boolean array;
+    private final int hash;
 
-    private SharkType(Class type,boolean collection, boolean map,SharkType valueType) {
+    private SharkType(Class type,boolean collection, boolean map,SharkType valueType, boolean array, Class owner) {
         this.type = type;
+        this.owner = owner;
         this.valueType = valueType;
         this.collection = collection;
         this.map = map;
+        this.array = array;
+        
+        int hash = 7;
+        hash = 71 * hash + (this.type != null ? this.type.hashCode() : 0);
+        hash = 71 * hash + (this.valueType != null ? this.valueType.hashCode() : 0);
+        hash = 71 * hash + (this.collection ? 1 : 0);
+        hash = 71 * hash + (this.map ? 1 : 0);
+        this.hash = hash;
+    }
+    
+    /**
+     * Get the canonical instance of a type
+     */
+    private static SharkType intern(Class type,boolean collection, boolean map,SharkType valueType, boolean array) {
+        final Class owner = valueType != null ? ReflectUtils.getInnermostClass(valueType.owner, type) : type;
+        final ConcurrentMap<Key,SharkType> classTypes = types.get(owner);
+        final Key key = new Key(type, collection, map, valueType, array);
+        SharkType out = classTypes.get(key);
+        if (out == null) {
+            out = new SharkType(type, collection, map, valueType, array, owner);
+            SharkType existing = classTypes.putIfAbsent(key, out);
+            if (existing != null)
+                out = existing;
+        }
+        return out;
     }
 
     public boolean isCollection() {
@@ -43,13 +95,7 @@ public final class SharkType<T,U> {
     }
     
     public boolean isArray() {
-        if (array == null)
-            return type.isArray();
-        return array;
-    }
-
-    private void setArray(Boolean array) {
-        this.array = array;
+        return array || type.isArray();
     }
     
     
@@ -77,6 +123,9 @@ public final class SharkType<T,U> {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj == null) {
             return false;
         }
@@ -84,6 +133,9 @@ public final class SharkType<T,U> {
             return false;
         }
         final SharkType<T, U> other = (SharkType<T, U>) obj;
+        if (this.hash != other.hash) {
+            return false;
+        }
         if (this.type != other.type && (this.type == null || !this.type.equals(other.type))) {
             return false;
         }
@@ -101,29 +153,24 @@ public final class SharkType<T,U> {
 
     @Override
     public int hashCode() {
-        int hash = 7;
-        hash = 71 * hash + (this.type != null ? this.type.hashCode() : 0);
-        hash = 71 * hash + (this.valueType != null ? this.valueType.hashCode() : 0);
-        hash = 71 * hash + (this.collection ? 1 : 0);
-        hash = 71 * hash + (this.map ? 1 : 0);
         return hash;
     }
     
     public static <T,U> SharkType<T,U> forCollection(Class<T> type,SharkType<U,?> entryType) {
-        return new SharkType(type, true, false, entryType);
+        return intern(type, true, false, entryType, false);
     }
     public static <T,U> SharkType<T,U> forCollection(Class<T> type,Class<U> entryType) {
         return (SharkType<T, U>) forCollection(type, get(entryType));
     }
     
     public static <T,U> SharkType<T,U> forMap(Class<T> type,SharkType<U,?> entryType) {
-        return new SharkType(type, false, true, entryType);
+        return intern(type, false, true, entryType, false);
     }
     public static <T,U> SharkType<T,U> forMap(Class<T> type,Class<U> entryType) {
         return (SharkType<T, U>) forMap(type, get(entryType));
     }
     public static <T> SharkType<T,?> forSimple(Class<T> type) {
-        return new SharkType<T,Object>(type, false, false, null);
+        return intern(type, false, false, null, false);
     }
     
     public static <T,U> SharkType<T,U> get(Class<T> type,Class<U> valueType) {
@@ -131,7 +178,7 @@ public final class SharkType<T,U> {
     }
     
     public static <T,U> SharkType<T,?> get(Class<T> type) {
-        return get(ClassInfo.from(type));
+        return rawTypes.get(type);
     }
     
     public static SharkType get(FieldInfo field) {
@@ -148,13 +195,13 @@ public final class SharkType<T,U> {
             return forCollection(type, valueType);
         }
         
-        return (SharkType<T, U>) new SharkType<T, U>(type,false,false,valueType);
+        return intern(type, false, false, valueType, false);
     }
     
     
     
     public static <T> SharkType<T,?> get(ClassInfo<T> info) {
-        SharkType valueType = new SharkType(Object.class, false,false,null);
+        SharkType valueType = intern(Object.class, false, false, null, false);
         if (info.isMap()) {
             valueType = type2Class(info.getMapValueType());
         }
@@ -191,11 +238,52 @@ public final class SharkType<T,U> {
         
         if (type instanceof GenericArrayType) {
             SharkType out = type2Class(((GenericArrayType)type).getGenericComponentType());
-            out.setArray(true);
-            return out;
+            return intern(out.type, out.collection, out.map, out.valueType, true);
         }
         
         return SharkType.get((Class) type);
     }
     
+    /**
+     * Identifies a type among the types kept with a class. Value types are canonical - so they are compared by identity.
+     */
+    private static final class Key {
+        private final Class type;
+        private final boolean collection;
+        private final boolean map;
+        private final SharkType valueType;
+        private final boolean array;
+
+        public Key(Class type, boolean collection, boolean map, SharkType valueType, boolean array) {
+            this.type = type;
+            this.collection = collection;
+            this.map = map;
+            this.valueType = valueType;
+            this.array = array;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return type == other.type
+                    && collection == other.collection
+                    && map == other.map
+                    && valueType == other.valueType
+                    && array == other.array;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 5;
+            hash = 31 * hash + type.hashCode();
+            hash = 31 * hash + (collection ? 1 : 0);
+            hash = 31 * hash + (map ? 1 : 0);
+            hash = 31 * hash + System.identityHashCode(valueType);
+            hash = 31 * hash + (array ? 1 : 0);
+            return hash;
+        }
+    }
 }
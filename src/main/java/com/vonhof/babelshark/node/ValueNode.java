@@ -3,12 +3,23 @@ package com.vonhof.babelshark.node;
 import com.vonhof.babelshark.annotation.Name;
 
 /**
- *
+ * Value node. Nodes created with one of the of(...) methods keep int, long, double and boolean values unboxed -
+ * use getInt(), getLong(), getDouble() or getBoolean() to read them without boxing. getValue() boxes the value
+ * on first use.
  * @author Henrik Hofmeister <@vonhofdk>
  */
 @Name("Object")
 public final class ValueNode<T> extends SharkNode {
+    private static final byte OBJECT = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+
     private T value;
+    private byte kind = OBJECT;
+    //Raw primitive value - doubles are stored as their long bits and booleans as 0 or 1
+    private long bits;
 
     public ValueNode() {
         super(NodeType.VALUE);
@@ -18,21 +29,118 @@ public final class ValueNode<T> extends SharkNode {
         this();
         this.value = value;
     }
-    
+
+    private ValueNode(byte kind, long bits) {
+        this();
+        this.kind = kind;
+        this.bits = bits;
+    }
+
+    public static ValueNode<Integer> of(int value) {
+        return new ValueNode<Integer>(INT, value);
+    }
+
+    public static ValueNode<Long> of(long value) {
+        return new ValueNode<Long>(LONG, value);
+    }
+
+    public static ValueNode<Double> of(double value) {
+        return new ValueNode<Double>(DOUBLE, Double.doubleToLongBits(value));
+    }
+
+    public static ValueNode<Boolean> of(boolean value) {
+        return new ValueNode<Boolean>(BOOLEAN, value ? 1 : 0);
+    }
 
     public T getValue() {
+        if (value == null && kind != OBJECT)
+            value = (T) box();
         return value;
     }
-    
+
     public void setValue(T value) {
         this.value = value;
+        this.kind = OBJECT;
+        this.bits = 0;
+    }
+
+    /**
+     * Get the primitive type of the value if it is kept unboxed - int, long, double or boolean. Null otherwise.
+     * @return
+     */
+    public Class getPrimitiveType() {
+        switch (kind) {
+            case INT:
+                return int.class;
+            case LONG:
+                return long.class;
+            case DOUBLE:
+                return double.class;
+            case BOOLEAN:
+                return boolean.class;
+        }
+        return null;
+    }
+
+    public int getInt() {
+        switch (kind) {
+            case INT:
+            case LONG:
+                return (int) bits;
+            case DOUBLE:
+                return (int) Double.longBitsToDouble(bits);
+        }
+        return ((Number) getValue()).intValue();
+    }
+
+    public long getLong() {
+        switch (kind) {
+            case INT:
+            case LONG:
+                return bits;
+            case DOUBLE:
+                return (long) Double.longBitsToDouble(bits);
+        }
+        return ((Number) getValue()).longValue();
+    }
+
+    public double getDouble() {
+        switch (kind) {
+            case INT:
+            case LONG:
+                return bits;
+            case DOUBLE:
+                return Double.longBitsToDouble(bits);
+        }
+        return ((Number) getValue()).doubleValue();
+    }
+
+    public boolean getBoolean() {
+        if (kind == BOOLEAN)
+            return bits != 0;
+        return (Boolean) getValue();
+    }
+
+    private Object box() {
+        switch (kind) {
+            case INT:
+                return Integer.valueOf((int) bits);
+            case LONG:
+                return Long.valueOf(bits);
+            case DOUBLE:
+                return Double.valueOf(Double.longBitsToDouble(bits));
+            case BOOLEAN:
+                return Boolean.valueOf(bits != 0);
+        }
+        return null;
     }
 
     @Override
     public String toString() {
-        if (value instanceof String || value instanceof Enum)
-            return String.format("\"%s\"",value);
-        return String.format("%s",value);
+        Object v = getValue();
+        if (v instanceof String || v instanceof Enum)
+            return String.format("\"%s\"",v);
+        return String.format("%s",v);
     }
 
     @Override
@@ -40,7 +148,11 @@ public final class ValueNode<T> extends SharkNode {
         if (!super.equals(obj))
             return false;
         final ValueNode<T> other = (ValueNode<T>) obj;
-        if (this.value != other.value && (this.value == null || !this.value.equals(other.value))) {
+        if (kind != OBJECT && kind == other.kind)
+            return bits == other.bits;
+        final Object value = getValue();
+        final Object otherValue = other.getValue();
+        if (value != otherValue && (value == null || !value.equals(otherValue))) {
             return false;
         }
         return true;
@@ -49,11 +161,23 @@ public final class ValueNode<T> extends SharkNode {
     @Override
     public int hashCode() {
         int hash = super.hashCode();
-        hash = 47 * hash + (this.value != null ? this.value.hashCode() : 0);
+        hash = 47 * hash + valueHashCode();
         return hash;
     }
-    
-    
-    
-    
+
+    /**
+     * Same as getValue().hashCode() - without boxing
+     */
+    private int valueHashCode() {
+        switch (kind) {
+            case INT:
+                return (int) bits;
+            case LONG:
+            case DOUBLE:
+                return (int) (bits ^ (bits >>> 32));
+            case BOOLEAN:
+                return bits != 0 ? 1231 : 1237;
+        }
+        return value != null ? value.hashCode() : 0;
+    }
 }
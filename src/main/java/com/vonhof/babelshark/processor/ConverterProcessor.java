@@ -0,0 +1,538 @@
+package com.vonhof.babelshark.processor;
+
+import com.vonhof.babelshark.annotation.FactoryMethod;
+import com.vonhof.babelshark.annotation.GenerateConverter;
+import com.vonhof.babelshark.annotation.Ignore;
+import com.vonhof.babelshark.annotation.Name;
+import com.vonhof.babelshark.annotation.TypeResolver;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates converters for beans annotated with {@link GenerateConverter}. Fields are mapped the same way as
+ * the default bean mapper does at runtime - but resolved at compile time into straight-line field reads and
+ * writes. The generated converters are listed as {@link com.vonhof.babelshark.SharkConverterProvider} services.
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+@SupportedAnnotationTypes("com.vonhof.babelshark.annotation.GenerateConverter")
+public class ConverterProcessor extends AbstractProcessor {
+
+    private static final String PROVIDER_SERVICE = "META-INF/services/com.vonhof.babelshark.SharkConverterProvider";
+    private static final String CONVERTER_SUFFIX = "SharkConverter";
+
+    private final Set<String> converters = new LinkedHashSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+
+        for(Element element:roundEnv.getElementsAnnotatedWith(GenerateConverter.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@GenerateConverter can only be used on classes");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            if (!canGenerate(type))
+                continue;
+            try {
+                converters.add(generate(type));
+            } catch (IOException ex) {
+                error(type, String.format("Failed to write converter: %s", ex.getMessage()));
+            }
+        }
+        return true;
+    }
+
+    private boolean canGenerate(TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        if (modifiers.contains(Modifier.ABSTRACT)
+                || modifiers.contains(Modifier.PRIVATE)
+                || (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC))
+                || type.getNestingKind() == NestingKind.LOCAL
+                || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            error(type, "Converters can only be generated for non-private, non-abstract top level or static classes");
+            return false;
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            error(type, "Converters can not be generated for generic classes");
+            return false;
+        }
+        if (type.getAnnotation(FactoryMethod.class) != null
+                || type.getAnnotation(TypeResolver.class) != null) {
+            error(type, "Converters can not be generated for classes with factory methods or type resolvers");
+            return false;
+        }
+
+        boolean hasConstructor = false;
+        for(ExecutableElement constructor:ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()
+                    && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                hasConstructor = true;
+            }
+        }
+        if (!hasConstructor) {
+            error(type, "Converters can only be generated for classes with a non-private no-argument constructor");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Read mapped properties - the same way DefaultBeanMapper does.
+     */
+    private List<Property> readProperties(TypeElement type) {
+        final Types types = processingEnv.getTypeUtils();
+        final DeclaredType beanType = (DeclaredType) type.asType();
+
+        //Field names already seen - fields in sub classes hide fields in super classes
+        final Map<String,Property> fields = new LinkedHashMap<String, Property>();
+
+        TypeElement clz = type;
+        while(clz != null
+                && !clz.getQualifiedName().contentEquals(Object.class.getName())) {
+            for(VariableElement field:ElementFilter.fieldsIn(clz.getEnclosedElements())) {
+                String fieldName = field.getSimpleName().toString();
+                if (fields.containsKey(fieldName))
+                    continue;
+                if (field.getModifiers().contains(Modifier.STATIC)
+                        || field.getAnnotation(Ignore.class) != null) {
+                    fields.put(fieldName, null);
+                    continue;
+                }
+
+                TypeMirror fieldType = types.asMemberOf(beanType, field);
+                Property property = new Property(getName(field), fieldType);
+
+                boolean isPublic = field.getModifiers().contains(Modifier.PUBLIC);
+                ExecutableElement getter = getGetter(type, fieldName, fieldType);
+                ExecutableElement setter = getSetter(type, fieldName, fieldType);
+
+                if (getter != null)
+                    property.getter = getter.getSimpleName() + "()";
+                else if (isPublic)
+                    property.getter = fieldName;
+
+                if (setter != null)
+                    property.setter = setter.getSimpleName().toString();
+                else if (isPublic && !field.getModifiers().contains(Modifier.FINAL))
+                    property.field = fieldName;
+
+                fields.put(fieldName, property);
+            }
+
+            TypeMirror superType = clz.getSuperclass();
+            clz = superType.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) ((DeclaredType)superType).asElement()
+                    : null;
+        }
+
+        List<Property> out = new ArrayList<Property>();
+        for(Property property:fields.values()) {
+            if (property != null)
+                out.add(property);
+        }
+        return out;
+    }
+
+    private String getName(VariableElement field) {
+        Name name = field.getAnnotation(Name.class);
+        if (name != null && !name.value().isEmpty())
+            return name.value();
+        return field.getSimpleName().toString();
+    }
+
+    private String ucFirst(String name) {
+        return name.substring(0,1).toUpperCase().concat(name.substring(1));
+    }
+
+    private ExecutableElement getGetter(TypeElement type, String fieldName, TypeMirror fieldType) {
+        boolean isBoolean = fieldType.getKind() == TypeKind.BOOLEAN
+                || types().erasure(fieldType).toString().equals(Boolean.class.getName());
+        String getterName = (isBoolean ? "is" : "get") + ucFirst(fieldName);
+        for(ExecutableElement method:getMethods(type)) {
+            if (method.getSimpleName().contentEquals(getterName)
+                    && method.getParameters().isEmpty()) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private ExecutableElement getSetter(TypeElement type, String fieldName, TypeMirror fieldType) {
+        String setterName = "set" + ucFirst(fieldName);
+        for(ExecutableElement method:getMethods(type)) {
+            if (method.getSimpleName().contentEquals(setterName)
+                    && method.getParameters().size() == 1
+                    && types().isAssignable(types().erasure(fieldType),
+                            types().erasure(method.getParameters().get(0).asType()))) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private List<ExecutableElement> getMethods(TypeElement type) {
+        List<ExecutableElement> out = new ArrayList<ExecutableElement>();
+        for(ExecutableElement method:ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.STATIC)
+                    || modifiers.contains(Modifier.PRIVATE)
+                    || method.getAnnotation(Ignore.class) != null) {
+                continue;
+            }
+            out.add(method);
+        }
+        return out;
+    }
+
+    private String generate(TypeElement type) throws IOException {
+        final PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        final String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        final String beanName = type.getQualifiedName().toString();
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        final String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                                    .replace('$', '_') + CONVERTER_SUFFIX;
+        final String converterName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        final List<Property> properties = readProperties(type);
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(converterName, type);
+        PrintWriter out = new PrintWriter(file.openWriter());
+        try {
+            if (!packageName.isEmpty()) {
+                out.printf("package %s;%n%n", packageName);
+            }
+            out.println("import com.vonhof.babelshark.BabelSharkInstance;");
+            out.println("import com.vonhof.babelshark.DirectFields;");
+            out.println("import com.vonhof.babelshark.SharkConverter;");
+            out.println("import com.vonhof.babelshark.SharkConverterProvider;");
+            out.println("import com.vonhof.babelshark.SharkStreamDeserializer;");
+            out.println("import com.vonhof.babelshark.SharkStreamReader;");
+            out.println("import com.vonhof.babelshark.SharkStreamSerializer;");
+            out.println("import com.vonhof.babelshark.SharkStreamWriter;");
+            out.println("import com.vonhof.babelshark.converter.BabelSharkDeserializeException;");
+            out.println("import com.vonhof.babelshark.converter.BabelSharkSerializeException;");
+            out.println("import com.vonhof.babelshark.exception.MappingException;");
+            out.println("import com.vonhof.babelshark.node.ObjectNode;");
+            out.println("import com.vonhof.babelshark.node.SharkNode;");
+            out.println("import com.vonhof.babelshark.node.SharkType;");
+            out.println("import java.io.IOException;");
+            out.println();
+            out.printf("/**%n * Generated converter for %s - do not edit%n */%n", beanName);
+            out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+            out.printf("public final class %s implements SharkConverter<%s>, SharkStreamSerializer<%s>, SharkStreamDeserializer<%s>, SharkConverterProvider {%n",
+                    simpleName, beanName, beanName, beanName);
+            out.println();
+
+            for(int i = 0; i < properties.size(); i++) {
+                out.printf("    private static final SharkType TYPE_%d = %s;%n", i, typeExpression(properties.get(i).type));
+            }
+            out.println();
+
+            if (hasPrimitives(properties)) {
+                out.print("    private static final Class[] FIELD_TYPES = {");
+                for(int i = 0; i < properties.size(); i++) {
+                    out.printf("%s%s.class", i > 0 ? ", " : "", types().erasure(properties.get(i).type));
+                }
+                out.println("};");
+                out.println();
+                out.println("    private volatile DirectFields directFields;");
+                out.println();
+            }
+
+            out.println("    public void register(BabelSharkInstance bs) {");
+            out.printf("        bs.register(%s.class, this);%n", beanName);
+            out.println("    }");
+            out.println();
+
+            writeSerialize(out, beanName, properties);
+            writeStreamSerialize(out, beanName, properties);
+            writeDeserialize(out, beanName, properties);
+            writeStreamDeserialize(out, beanName, properties);
+
+            out.println("}");
+        } finally {
+            out.close();
+        }
+        return converterName;
+    }
+
+    private void writeSerialize(PrintWriter out, String beanName, List<Property> properties) {
+        out.printf("    public SharkNode serialize(BabelSharkInstance bs, %s instance) throws MappingException {%n", beanName);
+        out.println("        ObjectNode out = new ObjectNode();");
+        out.println("        String field = null;");
+        out.println("        try {");
+        for(Property property:properties) {
+            if (property.getter == null) continue;
+            out.printf("            field = \"%s\";%n", escape(property.name));
+            out.printf("            out.put(field, bs.write(instance.%s));%n", property.getter);
+        }
+        out.println("        } catch (Exception ex) {");
+        out.println("            throw new BabelSharkSerializeException(String.format(\"Failed to write value for field: %s\", field), ex);");
+        out.println("        }");
+        out.println("        return out;");
+        out.println("    }");
+        out.println();
+    }
+
+    private void writeStreamSerialize(PrintWriter out, String beanName, List<Property> properties) {
+        out.printf("    public void serialize(BabelSharkInstance bs, %s instance, SharkStreamWriter out) throws MappingException, IOException {%n", beanName);
+        if (hasPrimitives(properties)) {
+            //Primitives are written directly - unless a custom converter is registered for them
+            out.println("        DirectFields direct = directFields;");
+            out.println("        if (direct == null || !direct.isCurrent(bs)) {");
+            out.println("            direct = new DirectFields(bs, FIELD_TYPES);");
+            out.println("            directFields = direct;");
+            out.println("        }");
+        }
+        out.println("        out.writeStartObject();");
+        out.println("        String field = null;");
+        out.println("        try {");
+        for(int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            if (property.getter == null) continue;
+            out.printf("            field = \"%s\";%n", escape(property.name));
+            out.println("            out.writeFieldName(field);");
+            if (isPrimitive(property.type)) {
+                out.printf("            if (direct.isDirect(%d))%n", i);
+                out.printf("                out.writeValue(%sinstance.%s);%n", 
+                        property.type.getKind() == TypeKind.DOUBLE || property.type.getKind() == TypeKind.BOOLEAN ? "" : "(long) ",
+                        property.getter);
+                out.println("            else");
+                out.printf("                bs.write(out, (Object) instance.%s);%n", property.getter);
+            } else {
+                out.printf("            bs.write(out, (Object) instance.%s);%n", property.getter);
+            }
+        }
+        out.println("        } catch (IOException ex) {");
+        out.println("            throw ex;");
+        out.println("        } catch (Exception ex) {");
+        out.println("            throw new BabelSharkSerializeException(String.format(\"Failed to write value for field: %s\", field), ex);");
+        out.println("        }");
+        out.println("        out.writeEndObject();");
+        out.println("    }");
+        out.println();
+    }
+
+    private void writeDeserialize(PrintWriter out, String beanName, List<Property> properties) {
+        out.printf("    public <U> %s deserialize(BabelSharkInstance bs, SharkNode node, SharkType<%s, U> type) throws MappingException {%n", beanName, beanName);
+        out.println("        if (!node.is(SharkNode.NodeType.MAP)) {");
+        out.println("            throw new MappingException(String.format(\"Could not convert %s to %s\", node, type));");
+        out.println("        }");
+        out.println("        ObjectNode objNode = (ObjectNode) node;");
+        out.printf("        %s out = new %s();%n", beanName, beanName);
+        out.println("        for(String field:objNode.getFields()) {");
+        out.println("            try {");
+        out.println("                switch (field) {");
+        for(int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            if (!property.isWritable()) continue;
+            out.printf("                    case \"%s\":%n", escape(property.name));
+            out.printf("                        %s;%n", property.assign(String.format("(%s) bs.read(objNode.get(field), TYPE_%d)", castType(property.type), i)));
+            out.println("                        break;");
+        }
+        out.println("                }");
+        out.println("            } catch (Exception ex) {");
+        out.println("                throw new BabelSharkDeserializeException(String.format(\"Failed to read value for field: %s\", field), ex);");
+        out.println("            }");
+        out.println("        }");
+        out.println("        return out;");
+        out.println("    }");
+        out.println();
+    }
+
+    private void writeStreamDeserialize(PrintWriter out, String beanName, List<Property> properties) {
+        out.printf("    public <U> %s deserialize(BabelSharkInstance bs, SharkStreamReader in, SharkType<%s, U> type) throws MappingException, IOException {%n", beanName, beanName);
+        out.println("        if (in.current() != SharkStreamReader.Token.START_OBJECT) {");
+        out.println("            throw new MappingException(String.format(\"Could not convert %s to %s\", in.current(), type));");
+        out.println("        }");
+        out.printf("        %s out = new %s();%n", beanName, beanName);
+        out.println("        while(in.next() == SharkStreamReader.Token.FIELD_NAME) {");
+        out.println("            String field = in.getFieldName();");
+        out.println("            in.next();");
+        out.println("            try {");
+        out.println("                switch (field) {");
+        for(int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            if (!property.isWritable()) continue;
+            out.printf("                    case \"%s\":%n", escape(property.name));
+            out.printf("                        %s;%n", property.assign(String.format("(%s) bs.read(in, TYPE_%d)", castType(property.type), i)));
+            out.println("                        break;");
+        }
+        out.println("                    default:");
+        out.println("                        in.skipValue();");
+        out.println("                }");
+        out.println("            } catch (IOException ex) {");
+        out.println("                throw ex;");
+        out.println("            } catch (Exception ex) {");
+        out.println("                throw new BabelSharkDeserializeException(String.format(\"Failed to read value for field: %s\", field), ex);");
+        out.println("            }");
+        out.println("        }");
+        out.println("        return out;");
+        out.println("    }");
+    }
+
+    /**
+     * Returns true if values of type can be written directly - see {@link com.vonhof.babelshark.DirectFields}
+     */
+    private boolean isPrimitive(TypeMirror type) {
+        switch (type.getKind()) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case DOUBLE:
+            case BOOLEAN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean hasPrimitives(List<Property> properties) {
+        for(Property property:properties) {
+            if (property.getter != null && isPrimitive(property.type))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get source code that creates the SharkType for type
+     */
+    private String typeExpression(TypeMirror type) {
+        switch (type.getKind()) {
+            case TYPEVAR:
+                return typeExpression(((TypeVariable)type).getUpperBound());
+            case WILDCARD:
+                TypeMirror bound = ((WildcardType)type).getExtendsBound();
+                return bound != null ? typeExpression(bound) : "SharkType.get(Object.class)";
+            case DECLARED:
+                List<? extends TypeMirror> args = ((DeclaredType)type).getTypeArguments();
+                String raw = types().erasure(type).toString();
+                if (isSubtype(type, "java.util.Map") && args.size() == 2) {
+                    return String.format("SharkType.forMap(%s.class, %s)", raw, typeExpression(args.get(1)));
+                }
+                if (isSubtype(type, "java.util.Collection") && args.size() == 1) {
+                    return String.format("SharkType.forCollection(%s.class, %s)", raw, typeExpression(args.get(0)));
+                }
+                return String.format("SharkType.get(%s.class)", raw);
+            default:
+                return String.format("SharkType.get(%s.class)", types().erasure(type));
+        }
+    }
+
+    /**
+     * Get the type that values read for type should be cast to
+     */
+    private String castType(TypeMirror type) {
+        if (type.getKind().isPrimitive())
+            return types().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        if (type.getKind() == TypeKind.TYPEVAR)
+            return castType(((TypeVariable)type).getUpperBound());
+        return types().erasure(type).toString();
+    }
+
+    private boolean isSubtype(TypeMirror type, String className) {
+        TypeElement element = processingEnv.getElementUtils().getTypeElement(className);
+        return element != null
+                && types().isSubtype(types().erasure(type), types().erasure(element.asType()));
+    }
+
+    private Types types() {
+        return processingEnv.getTypeUtils();
+    }
+
+    private String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private void writeServiceFile() {
+        if (converters.isEmpty())
+            return;
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", PROVIDER_SERVICE);
+            Writer out = file.openWriter();
+            try {
+                for(String converter:converters) {
+                    out.write(converter);
+                    out.write("\n");
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    String.format("Failed to write %s: %s", PROVIDER_SERVICE, ex.getMessage()));
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static class Property {
+        private final String name;
+        private final TypeMirror type;
+        //Expression reading the value from the instance - e.g. "getName()" or "name"
+        private String getter;
+        //Setter method name
+        private String setter;
+        //Field name if set directly
+        private String field;
+
+        public Property(String name, TypeMirror type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public boolean isWritable() {
+            return setter != null || field != null;
+        }
+
+        public String assign(String value) {
+            if (setter != null)
+                return String.format("out.%s(%s)", setter, value);
+            return String.format("out.%s = %s", field, value);
+        }
+    }
+}
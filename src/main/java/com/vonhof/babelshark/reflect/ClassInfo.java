@@ -10,6 +10,7 @@ import java.lang.reflect.*;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  *
@@ -18,27 +19,33 @@ import java.util.concurrent.ConcurrentHashMap;
 public final class ClassInfo<T> {
     private final static Logger log = LogManager.getLogger(ClassInfo.class);
 
-    private final static Map<Integer, ClassInfo> cache = new ConcurrentHashMap<>();
-
+    /**
+     * Raw classes - looking up an already read class is a single read
+     */
+    private final static ClassValue<ClassInfo> rawCache = new ClassValue<ClassInfo>() {
+        @Override
+        protected ClassInfo computeValue(Class<?> type) {
+            return new ClassInfo(type);
+        }
+    };
+
+    /**
+     * Classes with generic types - kept with the innermost class of the type and its generic types, so they do not
+     * keep classes of other loaders from being unloaded
+     */
+    private final static ClassValue<ConcurrentMap<Key, ClassInfo>> genericCache = new ClassValue<ConcurrentMap<Key, ClassInfo>>() {
+        @Override
+        protected ConcurrentMap<Key, ClassInfo> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<Key, ClassInfo>();
+        }
+    };
+
+    /**
+     * Get class info for type. Fields, methods and annotations are read on first use - so classes that are only
+     * used as types (e.g. beans with generated converters) are never scanned.
+     */
     public static <T> ClassInfo<T> from(Class<T> type) {
-        int hash = hash(type);
-
-        if (cache.containsKey(hash)) {
-            ClassInfo classInfo = cache.get(hash);
-            if (classInfo.isReady()) {
-                return classInfo;
-            }
-            
-            synchronized (classInfo) {
-                return classInfo;
-            }
-        }
-        ClassInfo classInfo = new ClassInfo(type);
-        synchronized (classInfo) {
-            cache.put(hash, classInfo);
-            classInfo.makeReady();
-            return classInfo;
-        }
+        return rawCache.get(type);
     }
 
     public static ClassInfo[] fromAll(Class... types) {
@@ -50,37 +57,66 @@ public final class ClassInfo<T> {
     }
 
     public static <T> ClassInfo<T> from(Class<T> type, Type[] genTypes) {
-        int hash = hash(type, genTypes);
-        if (cache.containsKey(hash)) {
-            return cache.get(hash);
+        //Without generic types it is the raw class
+        if (genTypes == null || genTypes.length == 0) {
+            return from(type);
+        }
+        ConcurrentMap<Key, ClassInfo> cache = genericCache.get(ReflectUtils.getInnermostClass(type, genTypes));
+        Key key = new Key(type, genTypes);
+        ClassInfo classInfo = cache.get(key);
+        if (classInfo == null) {
+            classInfo = new ClassInfo(type, genTypes);
+            ClassInfo existing = cache.putIfAbsent(key, classInfo);
+            if (existing != null) {
+                classInfo = existing;
+            }
         }
-        ClassInfo classInfo = new ClassInfo(type, genTypes);
-        cache.put(hash, classInfo);
-        classInfo.makeReady();
         return classInfo;
     }
 
+    /**
+     * Get class info for type with the generic types of genericType - or of the super class of type if null
+     */
     public static <T> ClassInfo<T> from(Class<T> type, Type genericType) {
-        Type[] genTypes = readGenericTypes(genericType);
-        int hash = hash(type, genTypes);
-        if (cache.containsKey(hash)) {
-            return cache.get(hash);
-        }
-        ClassInfo classInfo = new ClassInfo(type, genericType);
-        cache.put(hash, classInfo);
-        classInfo.makeReady();
-        return classInfo;
+        if (genericType != null) {
+            return from(type, readGenericTypes(genericType));
+        }
+        if (type.getGenericSuperclass() != null) {
+            return from(type, readGenericTypes(type.getGenericSuperclass()));
+        }
+        return from(type);
     }
 
-    private static int hash(Class type) {
-        return hash(type, new Type[0]);
-    }
+    /**
+     * Cache key of class with generic types
+     */
+    private static final class Key {
+        private final Class type;
+        private final Type[] genericTypes;
+        private final int hash;
 
-    private static int hash(Class type, Type[] genericTypes) {
-        int hash = 3;
-        hash = 71 * hash + (type != null ? type.hashCode() : 0);
-        hash = 71 * hash + Arrays.deepHashCode(genericTypes);
-        return hash;
+        public Key(Class type, Type[] genericTypes) {
+            this.type = type;
+            this.genericTypes = genericTypes != null ? genericTypes : new Type[0];
+            this.hash = 71 * type.hashCode() + Arrays.deepHashCode(this.genericTypes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return type == other.type && Arrays.deepEquals(genericTypes, other.genericTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 
     public static boolean isAssignableFrom(Class assignFrom, Class assignTo) {
@@ -106,6 +142,7 @@ public final class ClassInfo<T> {
     private final Map<Class<? extends Annotation>, Annotation> annotations = new HashMap<Class<? extends Annotation>, Annotation>();
     private final Map<TypeVariable, Type> typeVariableMap = new HashMap<TypeVariable, Type>();
     private volatile boolean ready;
+    private boolean reading;
 
     private ClassInfo(Class<T> type) {
         this.type = type;
@@ -117,18 +154,6 @@ public final class ClassInfo<T> {
         this.genericTypes = genericTypes;
     }
 
-    private ClassInfo(Class<T> type, Type genericType) {
-        this.type = type;
-
-        if (genericType != null) {
-            this.genericTypes = readGenericTypes(genericType);
-        } else if (this.type.getGenericSuperclass() != null) {
-            this.genericTypes = readGenericTypes(this.type.getGenericSuperclass());
-        } else {
-            this.genericTypes = new Type[0];
-        }
-    }
-
     private boolean isScalaType() {
         for(Annotation annotation : type.getAnnotations()){
             if (annotation.annotationType().getCanonicalName().equals("scala.reflect.ScalaSignature")) {
@@ -139,11 +164,18 @@ public final class ClassInfo<T> {
     }
 
     private synchronized void makeReady() {
-        if (isScalaType() || ready) {
+        //Reading may refer back to this class from the same thread
+        if (ready || reading) {
             return;
         }
 
+        reading = true;
         try {
+            //Scala types are not read - but are still ready
+            if (isScalaType()) {
+                return;
+            }
+
             readTypeVariables();
             readFields();
             readMethods();
@@ -159,6 +191,15 @@ public final class ClassInfo<T> {
         return ready;
     }
 
+    /**
+     * Make sure class info has been read. Only one thread reads the class - others wait for it to finish.
+     */
+    private void ensureReady() {
+        if (!ready) {
+            makeReady();
+        }
+    }
+
     private void readTypeVariables() {
 
         // interfaces
@@ -190,6 +231,7 @@ public final class ClassInfo<T> {
     }
 
     protected final Type getTypeVariableType(TypeVariable typeVar) {
+        ensureReady();
         return typeVariableMap.get(typeVar);
     }
 
@@ -389,20 +431,23 @@ public final class ClassInfo<T> {
     }
 
     public Map<String, FieldInfo> getFields() {
+        ensureReady();
         return Collections.unmodifiableMap(fields);
     }
 
     public FieldInfo getField(String name) {
+        ensureReady();
         return fields.get(name);
     }
 
     public List<MethodInfo> getMethods() {
+        ensureReady();
         return Collections.unmodifiableList(methods);
     }
 
     public MethodInfo getMethod(String name, ClassInfo... args) {
 
-        makeReady();
+        ensureReady();
 
         for (MethodInfo m : getMethods()) {
             if (m.getName().equalsIgnoreCase(name) && m.hasParmTypes(args)) {
@@ -413,7 +458,7 @@ public final class ClassInfo<T> {
     }
 
     public MethodInfo getMethodByClassParms(String name, Class... args) {
-        makeReady();
+        ensureReady();
 
         for (MethodInfo m : getMethods()) {
             if (m.getName().equalsIgnoreCase(name) && m.hasParmTypes(args)) {
@@ -432,10 +477,12 @@ public final class ClassInfo<T> {
     }
 
     public boolean hasAnnotation(Class<? extends Annotation> aType) {
+        ensureReady();
         return annotations.containsKey(aType);
     }
 
     public <T extends Annotation> T getAnnotation(Class<T> aType) {
+        ensureReady();
         return (T) annotations.get(aType);
     }
 
@@ -459,7 +506,10 @@ public final class ClassInfo<T> {
 
     @Override
     public int hashCode() {
-        return hash(type, genericTypes);
+        int hash = 3;
+        hash = 71 * hash + (type != null ? type.hashCode() : 0);
+        hash = 71 * hash + Arrays.deepHashCode(genericTypes);
+        return hash;
     }
 
     public boolean isAssignableFrom(ClassInfo classInfo) {
@@ -547,7 +597,7 @@ public final class ClassInfo<T> {
             return Object.class;
         }
 
-        makeReady();
+        ensureReady();
 
         if (getGenericTypes().length == 2) {
             return getGenericTypes()[0];
@@ -569,7 +619,7 @@ public final class ClassInfo<T> {
             return Object.class;
         }
 
-        makeReady();
+        ensureReady();
 
         MapValueType annotation = getAnnotation(MapValueType.class);
         if (annotation != null &&
@@ -166,6 +166,10 @@ public class MethodInfo {
         return method.getName();
     }
 
+    public Method getMethod() {
+        return method;
+    }
+
     public Class getReturnType() {
         return returnType;
     }
@@ -4,14 +4,26 @@
  */
 package com.vonhof.babelshark;
 
+import com.vonhof.babelshark.language.JsonLanguage;
 import com.vonhof.babelshark.node.ArrayNode;
 import com.vonhof.babelshark.node.ObjectNode;
 import com.vonhof.babelshark.node.SharkNode;
+import com.vonhof.babelshark.node.SharkType;
 import com.vonhof.babelshark.node.ValueNode;
+import com.vonhof.babelshark.reflect.ClassInfo;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import junit.framework.TestCase;
 
 /**
@@ -129,6 +141,135 @@ public class BabelSharkInstanceTest extends TestCase {
         assertEquals(makeMap(), result);
     }
     
+    public void test_can_write_in_parallel() throws Exception {
+        BabelSharkInstance parallel = new BabelSharkInstance();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        parallel.setParallelPool(pool);
+        parallel.setParallelThreshold(10);
+        try {
+            List<TestClass> list = new ArrayList<TestClass>();
+            Map<String,Object> map = new LinkedHashMap<String, Object>();
+            for(int i = 0; i < 100; i++) {
+                list.add(makeTestInstance());
+                map.put("key" + i, makeTestList());
+            }
+            int[] array = new int[100];
+            for(int i = 0; i < array.length; i++) {
+                array[i] = i;
+            }
+            
+            assertEquals(bs.write(list), parallel.write(list));
+            assertEquals(bs.write(map), parallel.write(map));
+            assertEquals(bs.write(array), parallel.write(array));
+            assertEquals(new ArrayList<String>(((ObjectNode) bs.write(map)).getFields()), 
+                    new ArrayList<String>(((ObjectNode) parallel.write(map)).getFields()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    public void test_can_stream_in_parallel() throws Exception {
+        BabelSharkInstance sequential = new BabelSharkInstance();
+        sequential.register(new JsonLanguage());
+        final BabelSharkInstance parallel = new BabelSharkInstance();
+        parallel.register(new JsonLanguage());
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        parallel.setParallelPool(pool);
+        parallel.setParallelThreshold(10);
+        final Set<ForkJoinPool> pools = Collections.newSetFromMap(new ConcurrentHashMap<ForkJoinPool, Boolean>());
+        parallel.register(Thread.State.class, new SharkSerializer<Thread.State>() {
+            public SharkNode serialize(BabelSharkInstance bs, Thread.State value) {
+                if (ForkJoinTask.inForkJoinPool())
+                    pools.add(ForkJoinTask.getPool());
+                return new ValueNode(value.name());
+            }
+        });
+        sequential.register(Thread.State.class, parallel.getSerializer(Thread.State.class));
+        try {
+            List<Object> list = new ArrayList<Object>();
+            Map<Object,Object> map = new LinkedHashMap<Object, Object>();
+            for(int i = 0; i < 100; i++) {
+                list.add(makeTestInstance());
+                list.add(Thread.State.NEW);
+                map.put("key" + i, makeTestList());
+            }
+            map.put(1, "one");
+            map.put("1", "another one");
+            
+            for(Object value:new Object[]{list, map, list.toArray()}) {
+                assertEquals(new String(sequential.writeToByteArray(value, "json"), "UTF-8"), 
+                        new String(parallel.writeToByteArray(value, "json"), "UTF-8"));
+            }
+            assertTrue(pools.contains(pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    public void test_writes_in_configured_pool_from_other_pools() throws Exception {
+        final BabelSharkInstance parallel = new BabelSharkInstance();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ForkJoinPool other = new ForkJoinPool(2);
+        parallel.setParallelPool(pool);
+        parallel.setParallelThreshold(10);
+        final Set<ForkJoinPool> pools = Collections.newSetFromMap(new ConcurrentHashMap<ForkJoinPool, Boolean>());
+        parallel.register(Thread.State.class, new SharkSerializer<Thread.State>() {
+            public SharkNode serialize(BabelSharkInstance bs, Thread.State value) {
+                pools.add(ForkJoinTask.getPool());
+                return new ValueNode(value.name());
+            }
+        });
+        try {
+            final List<Thread.State> list = Collections.nCopies(100, Thread.State.NEW);
+            //Caller runs in another pool - e.g. a parallel stream or an application pool
+            SharkNode result = other.submit(new Callable<SharkNode>() {
+                public SharkNode call() {
+                    return parallel.write(list);
+                }
+            }).get();
+            assertEquals(100, ((ArrayNode) result).size());
+            assertEquals(Collections.singleton(pool), pools);
+        } finally {
+            pool.shutdown();
+            other.shutdown();
+        }
+    }
+    
+    public void test_can_read_and_write_compiled_bean() throws Exception {
+        BabelSharkInstance compiled = new BabelSharkInstance();
+        compiled.setCompileBeans(true);
+        
+        assertEquals(makeObject(),compiled.write(makeTestInstance()));
+        assertEquals(makeTestInstance(),compiled.read(makeObject(), TestClass.class));
+        assertNotSame(bs.getSerializer(TestClass.class),compiled.getSerializer(TestClass.class));
+    }
+    
+    public void test_can_evict_class_loader() throws Exception {
+        for(boolean compileBeans:new boolean[]{false, true}) {
+            BabelSharkInstance instance = new BabelSharkInstance();
+            instance.setCompileBeans(compileBeans);
+            WeakReference<ClassLoader> loader = useClassesOfNewLoader(instance);
+            assertTrue(RedeployedBean.isCollected(loader));
+        }
+    }
+    
+    private WeakReference<ClassLoader> useClassesOfNewLoader(BabelSharkInstance instance) throws Exception {
+        Class clz = RedeployedBean.loadInNewLoader();
+        ObjectNode node = new ObjectNode();
+        node.put("name", "a");
+        node.put("count", 1);
+        ArrayNode list = new ArrayNode();
+        list.add(node);
+        
+        Object bean = instance.read(node, clz);
+        assertEquals(node, instance.write(bean));
+        assertEquals(1, ((List) instance.read(list, SharkType.forCollection(List.class, clz))).size());
+        ClassInfo.from(List.class, new Type[]{clz}).getCollectionType();
+        
+        instance.evict(clz.getClassLoader());
+        return new WeakReference<ClassLoader>(clz.getClassLoader());
+    }
+    
     public static class TestClass {
         public boolean test;
         public List<Double> list;
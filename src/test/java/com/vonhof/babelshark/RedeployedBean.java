@@ -0,0 +1,34 @@
+package com.vonhof.babelshark;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * Bean that tests load in a throwaway class loader - to check that caches let the loader be unloaded
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class RedeployedBean {
+    public String name;
+    public int count;
+
+    /**
+     * Load a copy of this class in a new class loader
+     */
+    public static Class<?> loadInNewLoader() throws ClassNotFoundException {
+        URL classes = RedeployedBean.class.getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader loader = new URLClassLoader(new URL[]{classes}, null);
+        return loader.loadClass(RedeployedBean.class.getName());
+    }
+
+    /**
+     * Returns true if the referenced object is garbage collected within a few seconds
+     */
+    public static boolean isCollected(WeakReference<?> ref) throws InterruptedException {
+        for(int i = 0; i < 100 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return ref.get() == null;
+    }
+}
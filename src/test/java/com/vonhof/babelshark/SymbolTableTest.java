@@ -0,0 +1,31 @@
+package com.vonhof.babelshark;
+
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class SymbolTableTest extends TestCase {
+
+    public SymbolTableTest(String testName) {
+        super(testName);
+    }
+
+    public void testReturnsCanonicalNames() {
+        SymbolTable symbols = new SymbolTable();
+        String name = symbols.intern(new String("name"));
+        assertSame(name, symbols.intern(new String("name")));
+        assertSame("name", name);
+        assertNull(symbols.intern(null));
+    }
+
+    public void testIsBounded() {
+        SymbolTable symbols = new SymbolTable(10);
+        for(int i = 0; i < 100; i++) {
+            symbols.intern("field" + i);
+            assertTrue(symbols.size() <= 10);
+        }
+        assertEquals("field99", symbols.intern("field99"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.vonhof.babelshark;
+
+import com.vonhof.babelshark.node.SharkType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class TypeRegistryTest extends TestCase {
+    
+    public TypeRegistryTest(String testName) {
+        super(testName);
+    }
+    
+    public void testCanResolveFromSuperTypes() {
+        TypeRegistry<String> registry = new TypeRegistry<String>();
+        registry.put(SharkType.get(Collection.class), "collection");
+        
+        assertEquals("collection", registry.get(SharkType.forCollection(ArrayList.class, String.class)));
+        assertEquals("collection", registry.get(SharkType.get(String[].class)));
+        assertNull(registry.get(SharkType.get(String.class)));
+    }
+    
+    public void testPutInvalidatesResolvedValues() {
+        TypeRegistry<String> registry = new TypeRegistry<String>();
+        assertNull(registry.get(SharkType.get(Integer.class)));
+        
+        registry.put(SharkType.get(Number.class), "number");
+        assertEquals("number", registry.get(SharkType.get(Integer.class)));
+        
+        registry.put(SharkType.get(Integer.class), "integer");
+        assertEquals("integer", registry.get(SharkType.get(Integer.class)));
+    }
+    
+    public void testConcurrentPutsAreAllVisible() throws InterruptedException {
+        final TypeRegistry<String> registry = new TypeRegistry<String>();
+        final Class[] types = {Integer.class, Long.class, Double.class, Float.class, Short.class, Byte.class};
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[types.length];
+        for(int i = 0; i < types.length; i++) {
+            final Class type = types[i];
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        registry.put(SharkType.get(type), type.getSimpleName());
+                        for(Class other : types) {
+                            registry.get(SharkType.get(other));
+                        }
+                        assertEquals(type.getSimpleName(), registry.get(SharkType.get(type)));
+                    } catch (Throwable ex) {
+                        error.set(ex);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(error.get());
+        for(Class type : types) {
+            assertEquals(type.getSimpleName(), registry.get(SharkType.get(type)));
+        }
+    }
+}
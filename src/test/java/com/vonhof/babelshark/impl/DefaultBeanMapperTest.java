@@ -121,6 +121,20 @@ public class DefaultBeanMapperTest {
 
     }
 
+    @Test
+    public void can_cache_register_and_evict_map() throws Exception {
+        MappedBean result = instance.getMap(TestClass.class);
+        assertSame(result, instance.getMap(TestClass.class));
+
+        instance.evict(TestClass.class);
+        MappedBean remapped = instance.getMap(TestClass.class);
+        assertNotSame(result, remapped);
+        assertEquals(result, remapped);
+
+        instance.register(expResult);
+        assertSame(expResult, instance.getMap(TestClass.class));
+    }
+
     @Name("test")
     public static class TestClass {
         private String name;
@@ -1,12 +1,43 @@
 package com.vonhof.babelshark.language;
 
+import com.vonhof.babelshark.AsyncReader;
 import com.vonhof.babelshark.BabelShark;
+import com.vonhof.babelshark.BabelSharkInstance;
+import com.vonhof.babelshark.BeanMap;
+import com.vonhof.babelshark.ChunkedOutputStream;
 import com.vonhof.babelshark.Input;
+import com.vonhof.babelshark.NodeStreamReader;
+import com.vonhof.babelshark.Output;
+import com.vonhof.babelshark.RecordIterator;
+import com.vonhof.babelshark.SharkSerializer;
+import com.vonhof.babelshark.SharkStreamReader;
+import com.vonhof.babelshark.StreamingObjectReader;
 import com.vonhof.babelshark.exception.MappingException;
 import com.vonhof.babelshark.node.ArrayNode;
 import com.vonhof.babelshark.node.ObjectNode;
+import com.vonhof.babelshark.node.SharkNode;
+import com.vonhof.babelshark.node.SharkType;
 import com.vonhof.babelshark.node.ValueNode;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import junit.framework.TestCase;
 
 /**
@@ -45,6 +76,37 @@ public class JsonLanguageTest extends TestCase {
         assertEquals(new ValueNode(123),result.get("visits"));
     }
     
+    public void testCanReadWithContentTypeParametersOrLanguage() throws MappingException, IOException {
+        BabelSharkInstance bs = new BabelSharkInstance();
+        JsonLanguage json = new JsonLanguage();
+        bs.register(json);
+        
+        for(int i = 0; i < 2; i++) {
+            ObjectNode result = bs.read(new Input(JSON_OBJECT, "Application/JSON; charset=utf-8"), ObjectNode.class);
+            assertEquals(new ValueNode("some name"),result.get("name"));
+        }
+        
+        ObjectNode result = bs.read(new Input(JSON_OBJECT, "unknown/type"), json, ObjectNode.class);
+        assertEquals(new ValueNode(123),result.get("visits"));
+    }
+    
+    public void testCanReadNestedJsonWithNumberTypes() throws MappingException, IOException {
+        Input input = new Input("{\"int\":1,\"long\":12345678901,\"big\":123456789012345678901234567890,"
+                + "\"double\":1.5,\"null\":null,\"list\":[{\"a\":\"b\"},[]]}", "json");
+        ObjectNode result = BabelShark.read(input,ObjectNode.class);
+        
+        assertEquals(new ValueNode(1),result.get("int"));
+        assertEquals(new ValueNode(12345678901L),result.get("long"));
+        assertEquals(new ValueNode(new BigInteger("123456789012345678901234567890")),result.get("big"));
+        assertEquals(new ValueNode(1.5D),result.get("double"));
+        assertEquals(new ValueNode(null),result.get("null"));
+        
+        ArrayNode list = result.getArray("list");
+        assertEquals(2,list.size());
+        assertEquals(new ValueNode("b"),((ObjectNode)list.get(0)).get("a"));
+        assertEquals(new ArrayNode(),list.get(1));
+    }
+    
     
     public void testCanWriteSimpleJson() throws MappingException, IOException {
         ArrayNode array = new ArrayNode();
@@ -64,4 +126,403 @@ public class JsonLanguageTest extends TestCase {
         String json = BabelShark.writeToString(obj,"json");
         assertEquals(JSON_OBJECT,json);
     }
+    
+    public void testCollapsesMapKeysWithTheSameName() throws MappingException, IOException {
+        Map<Object,Object> map = new LinkedHashMap<Object, Object>();
+        map.put(1, "a");
+        map.put("2", "b");
+        map.put("1", "c");
+        
+        String json = "{\"1\":\"c\",\"2\":\"b\"}";
+        assertEquals(json, BabelShark.writeToString(map, "json"));
+        assertEquals(json, BabelShark.writeToString(BabelShark.getDefaultInstance().write(map), "json"));
+    }
+    
+    public void testCanWriteBeanJson() throws MappingException, IOException {
+        TestBean bean = new TestBean();
+        bean.name = "some name";
+        bean.type = TestType.B;
+        bean.values = new int[]{1,2};
+        bean.children.add(new TestBean());
+        bean.extra.put("key", new BeanMap<TestBean>(new TestBean()));
+        
+        String json = BabelShark.writeToString(bean,"json");
+        assertEquals("{\"name\":\"some name\",\"type\":\"B\",\"values\":[1,2],"
+                + "\"children\":[{\"name\":null,\"type\":\"A\",\"values\":null,\"children\":[],\"extra\":{}}],"
+                + "\"extra\":{\"key\":{\"name\":null,\"type\":\"A\",\"values\":null,\"children\":[],\"extra\":{}}}}",json);
+        
+        //Streamed output should match the node tree output
+        SharkNode node = BabelShark.getDefaultInstance().write(bean);
+        assertEquals(BabelShark.writeToString(node,"json"),json);
+    }
+    
+    public void testCanReadBeanJson() throws MappingException, IOException {
+        Input input = new Input("{\"name\":\"some name\",\"unknown\":{\"a\":[1,{\"b\":2}]},\"type\":\"B\",\"values\":[1,2],"
+                + "\"children\":[{\"name\":\"child\",\"other\":[[]]}],\"extra\":{\"key\":{\"name\":\"x\"},\"num\":1}}", "json");
+        TestBean result = BabelShark.read(input,TestBean.class);
+        
+        assertEquals("some name",result.name);
+        assertEquals(TestType.B,result.type);
+        assertEquals(2,result.values.length);
+        assertEquals(2,result.values[1]);
+        assertEquals(1,result.children.size());
+        assertEquals("child",result.children.get(0).name);
+        assertEquals(TestType.A,result.children.get(0).type);
+        
+        Map<String,Object> key = (Map<String,Object>) result.extra.get("key");
+        assertEquals("x",key.get("name"));
+        assertEquals(1,result.extra.get("num"));
+    }
+    
+    public void testCanIterateJsonArray() throws MappingException, IOException {
+        Input input = new Input("[{\"name\":\"a\"},{\"name\":\"b\",\"type\":\"B\"}]", "json");
+        RecordIterator<TestBean> it = BabelShark.readIterator(input, TestBean.class);
+        
+        assertTrue(it.hasNext());
+        assertEquals("a",it.next().name);
+        TestBean second = it.next();
+        assertEquals("b",second.name);
+        assertEquals(TestType.B,second.type);
+        assertFalse(it.hasNext());
+    }
+    
+    public void testCanIterateJsonArrayFromPath() throws MappingException, IOException {
+        Input input = new Input("{\"count\":2,\"skip\":{\"items\":[1]},\"result\":{\"items\":[{\"name\":\"a\"},{\"name\":\"b\"}],\"after\":true}}", "json");
+        RecordIterator<TestBean> it = BabelShark.readIterator(input, "result/items", TestBean.class);
+        
+        assertEquals("a",it.next().name);
+        assertEquals("b",it.next().name);
+        assertFalse(it.hasNext());
+        
+        input = new Input("{\"result\":{}}", "json");
+        assertFalse(BabelShark.readIterator(input, "result/items", TestBean.class).hasNext());
+    }
+    
+    public void testCanWritePrimitiveBeanJson() throws MappingException, IOException {
+        PrimitiveBean bean = new PrimitiveBean();
+        bean.count = 3;
+        bean.total = 1L << 40;
+        bean.ratio = 0.5;
+        bean.small = 1.5f;
+        bean.setActive(true);
+        
+        String json = BabelShark.writeToString(bean,"json");
+        assertEquals("{\"count\":3,\"total\":1099511627776,\"ratio\":0.5,\"small\":1.5,\"active\":true}",json);
+        
+        PrimitiveBean result = BabelShark.read(new Input(json, "json"),PrimitiveBean.class);
+        assertEquals(3,result.count);
+        assertEquals(1L << 40,result.total);
+        assertEquals(0.5,result.ratio);
+        assertEquals(1.5f,result.small);
+        assertTrue(result.isActive());
+    }
+    
+    public void testReadsStreamedPrimitivesWithoutBoxing() throws MappingException, IOException {
+        JsonLanguage language = new JsonLanguage();
+        StreamingObjectReader reader = (StreamingObjectReader) language.getObjectReader();
+        SharkStreamReader in = reader.open(new Input("[3,1099511627776,0.5,true,\"a\"]", "json"));
+        try {
+            in.next();
+            in.next();
+            assertEquals(int.class, in.getPrimitiveType());
+            assertEquals(3L, in.getLong());
+            in.next();
+            assertEquals(long.class, in.getPrimitiveType());
+            assertEquals(1L << 40, in.getLong());
+            in.next();
+            assertEquals(double.class, in.getPrimitiveType());
+            assertEquals(0.5, in.getDouble());
+            in.next();
+            assertEquals(boolean.class, in.getPrimitiveType());
+            assertTrue(in.getBoolean());
+            in.next();
+            assertNull(in.getPrimitiveType());
+        } finally {
+            in.close();
+        }
+        
+        //Primitive fields are read through the typed accessors - never as boxed values
+        String json = "{\"count\":3,\"total\":1099511627776,\"ratio\":0.5,\"small\":1.5,\"active\":true}";
+        SharkNode node = reader.read(new Input(json, "json"));
+        for(boolean compileBeans:new boolean[]{false, true}) {
+            BabelSharkInstance bs = new BabelSharkInstance();
+            bs.setCompileBeans(compileBeans);
+            NodeStreamReader nodes = new NodeStreamReader(node) {
+                @Override
+                public Object getValue() throws IOException {
+                    throw new AssertionError("Primitive value was boxed");
+                }
+            };
+            nodes.next();
+            PrimitiveBean result = bs.read(nodes, SharkType.get(PrimitiveBean.class));
+            assertEquals(3,result.count);
+            assertEquals(1L << 40,result.total);
+            assertEquals(0.5,result.ratio);
+            assertEquals(1.5f,result.small);
+            assertTrue(result.isActive());
+        }
+    }
+    
+    public void testStreamedPrimitivesUseCustomConverters() throws MappingException, IOException {
+        PrimitiveBean bean = new PrimitiveBean();
+        bean.count = 3;
+        bean.setActive(true);
+        String json = "{\"count\":3,\"total\":0,\"ratio\":0.0,\"small\":0.0,\"active\":\"yes\"}";
+        
+        for(boolean compileBeans:new boolean[]{false, true}) {
+            BabelSharkInstance bs = new BabelSharkInstance();
+            bs.register(new JsonLanguage());
+            bs.setCompileBeans(compileBeans);
+            assertEquals(json.replace("\"yes\"", "true"), bs.writeToString(bean, "json"));
+            
+            bs.register(Boolean.class, new YesNoSerializer());
+            assertEquals(json, bs.writeToString(bean, "json"));
+            assertEquals(json, bs.writeToString(bs.write(bean), "json"));
+        }
+    }
+    
+    public void testCanReadAndWriteCompiledBeanJson() throws MappingException, IOException {
+        BabelSharkInstance bs = new BabelSharkInstance();
+        bs.register(new JsonLanguage());
+        bs.setCompileBeans(true);
+        
+        String json = "{\"name\":\"some name\",\"type\":\"B\",\"values\":[1,2],"
+                + "\"children\":[{\"name\":\"child\",\"type\":\"A\",\"values\":null,\"children\":[],\"extra\":{}}],\"extra\":{\"num\":1}}";
+        TestBean result = bs.read(new Input(json, "json"),TestBean.class);
+        assertEquals("some name",result.name);
+        assertEquals(TestType.B,result.type);
+        assertEquals("child",result.children.get(0).name);
+        assertEquals(1,result.extra.get("num"));
+        
+        assertEquals(json,bs.writeToString(result,"json"));
+    }
+    
+    public void testCanWriteIntoBuffers() throws Exception {
+        BabelSharkInstance bs = new BabelSharkInstance();
+        bs.register(new JsonLanguage());
+        TestBean bean = new TestBean();
+        bean.name = "some name";
+        bean.values = new int[]{1,2};
+        String json = "{\"name\":\"some name\",\"type\":\"A\",\"values\":[1,2],\"children\":[],\"extra\":{}}";
+        
+        assertEquals(json, bs.writeToString(bean, "json"));
+        assertEquals(json, new String(bs.writeToByteArray(bean, "json"), "UTF-8"));
+        assertEquals(json, new String(bs.writeToByteArray(bean, "json"), "UTF-8"));
+        
+        byte[] array = new byte[json.length() + 2];
+        assertEquals(json.length(), bs.writeTo(bean, "json", array, 2));
+        assertEquals(json, new String(array, 2, json.length(), "UTF-8"));
+        
+        ByteBuffer buffer = ByteBuffer.allocateDirect(100);
+        assertEquals(json.length(), bs.writeTo(bean, "json", buffer));
+        assertEquals(json.length(), buffer.position());
+        
+        try {
+            bs.writeTo(bean, "json", new byte[10], 0);
+            fail("Value should not fit");
+        } catch (BufferOverflowException ex) {
+            
+        }
+        
+        //Large values are written to the buffer in parts before they overflow
+        char[] text = new char[6000];
+        Arrays.fill(text, 'a');
+        ByteBuffer small = ByteBuffer.allocate(10000);
+        small.position(2);
+        try {
+            bs.writeTo(Arrays.asList(new String(text), new String(text)), "json", small);
+            fail("Value should not fit");
+        } catch (BufferOverflowException ex) {
+            assertEquals(2, small.position());
+        }
+    }
+    
+    public void testCanReadFromBytesBuffersAndFiles() throws Exception {
+        BabelSharkInstance bs = new BabelSharkInstance();
+        bs.register(new JsonLanguage());
+        byte[] bytes = ("  " + JSON_OBJECT + "  ").getBytes("UTF-8");
+        
+        ObjectNode result = bs.read(new Input(bytes, 2, bytes.length - 4, "json"), ObjectNode.class);
+        assertEquals(new ValueNode("some name"),result.get("name"));
+        
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        Input input = new Input(buffer, "json");
+        assertNull(input.getBytes());
+        result = bs.read(input, ObjectNode.class);
+        assertEquals(new ValueNode(123),result.get("visits"));
+        assertEquals(0, buffer.position());
+        
+        char[] chars = ("  " + JSON_OBJECT).toCharArray();
+        result = bs.read(new Input(chars, 2, chars.length - 2, "json"), ObjectNode.class);
+        assertEquals(new ValueNode(true),result.get("active"));
+        
+        result = bs.read(new Input(new StringBuilder(JSON_OBJECT), "json"), ObjectNode.class);
+        assertEquals(new ValueNode("Some id"),result.get("_id"));
+        
+        Path file = Files.createTempFile("babelshark", ".json");
+        try {
+            Files.write(file, bytes);
+            result = bs.read(Input.map(file, "json"), ObjectNode.class);
+            assertEquals(new ValueNode("some name"),result.get("name"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    public void testCanWriteToChannels() throws Exception {
+        BabelSharkInstance bs = new BabelSharkInstance();
+        bs.register(new JsonLanguage());
+        TestBean bean = new TestBean();
+        bean.name = "some name";
+        bean.values = new int[]{1,2};
+        String json = "{\"name\":\"some name\",\"type\":\"A\",\"values\":[1,2],\"children\":[],\"extra\":{}}";
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bs.write(new Output(Channels.newChannel(out), 16, false, "json"), bean);
+        assertEquals(json, out.toString("UTF-8"));
+        
+        Path file = Files.createTempFile("babelshark", ".json");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            Output output = new Output(channel, 16, true, "json");
+            bs.write(output, bean);
+            assertEquals(json.length(), channel.size());
+            
+            assertEquals(json.length(), output.transferFrom(channel, 0, json.length()));
+            assertEquals(json + json, new String(Files.readAllBytes(file), "UTF-8"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    public void testWritesToChannelsInFullBuffers() throws Exception {
+        BabelSharkInstance bs = new BabelSharkInstance();
+        bs.register(new JsonLanguage());
+        char[] text = new char[30000];
+        Arrays.fill(text, 'a');
+        
+        final List<Integer> writes = new ArrayList<Integer>();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel channel = new WritableByteChannel() {
+            public int write(ByteBuffer src) throws IOException {
+                byte[] bytes = new byte[src.remaining()];
+                src.get(bytes);
+                writes.add(bytes.length);
+                out.write(bytes);
+                return bytes.length;
+            }
+
+            public boolean isOpen() {
+                return true;
+            }
+
+            public void close() throws IOException {
+                
+            }
+        };
+        bs.write(new Output(channel, 10000, false, "json"), Arrays.asList(new String(text)));
+        
+        assertEquals(30004, out.size());
+        assertEquals(Arrays.asList(10000, 10000, 10000, 4), writes);
+    }
+    
+    public void testDoesNotWriteToNonBlockingChannels() throws Exception {
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.sink().configureBlocking(false);
+            new Output(pipe.sink(), "json");
+            fail("Non-blocking channels should be rejected");
+        } catch (IllegalArgumentException ex) {
+            
+        } finally {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+    
+    public void testCanReadAndWriteJsonAsync() throws Exception {
+        BabelSharkInstance bs = new BabelSharkInstance();
+        bs.register(new JsonLanguage());
+        
+        String json = "{\"name\":\"some name\",\"type\":\"B\",\"values\":[1,2],"
+                + "\"children\":[{\"name\":\"child\",\"type\":\"A\",\"values\":null,\"children\":[],\"extra\":{}}],\"extra\":{\"num\":1}}";
+        byte[] bytes = json.getBytes("UTF-8");
+        AsyncReader<TestBean> reader = bs.readAsync("json", TestBean.class);
+        for(int i = 0; i < bytes.length; i += 3) {
+            assertFalse(reader.getResult().isDone());
+            reader.feed(ByteBuffer.wrap(bytes, i, Math.min(3, bytes.length - i)));
+        }
+        TestBean result = reader.getResult().get();
+        assertEquals("some name",result.name);
+        assertEquals("child",result.children.get(0).name);
+        assertEquals(1,result.extra.get("num"));
+        
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final Thread caller = Thread.currentThread();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            bs.writeAsync(result, "json", executor, new Consumer<ByteBuffer>() {
+                @Override
+                public void accept(ByteBuffer chunk) {
+                    assertNotSame(caller, Thread.currentThread());
+                    out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+                }
+            }).get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(json, out.toString("UTF-8"));
+        
+        //Chunks have a fixed size - flushing does not emit partial chunks
+        final List<Integer> sizes = new ArrayList<Integer>();
+        ChunkedOutputStream stream = new ChunkedOutputStream(new Consumer<ByteBuffer>() {
+            @Override
+            public void accept(ByteBuffer chunk) {
+                sizes.add(chunk.remaining());
+            }
+        }, 8);
+        stream.write(new byte[5]);
+        stream.flush();
+        stream.write(new byte[15]);
+        stream.flush();
+        stream.close();
+        assertEquals(Arrays.asList(8, 8, 4), sizes);
+        
+        reader = bs.readAsync("json", TestBean.class);
+        reader.feed("{\"name\":".getBytes("UTF-8"));
+        reader.endOfInput();
+        assertTrue(reader.getResult().isCompletedExceptionally());
+    }
+    
+    public static enum TestType {A,B}
+    
+    public static class YesNoSerializer implements SharkSerializer<Boolean> {
+        public SharkNode serialize(BabelSharkInstance bs, Boolean value) throws MappingException {
+            return new ValueNode(value ? "yes" : "no");
+        }
+    }
+    
+    public static class PrimitiveBean {
+        public int count;
+        public long total;
+        public double ratio;
+        public float small;
+        private boolean active;
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+    }
+    
+    public static class TestBean {
+        public String name;
+        public TestType type = TestType.A;
+        public int[] values;
+        public List<TestBean> children = new ArrayList<TestBean>();
+        public Map<String,Object> extra = new LinkedHashMap<String, Object>();
+    }
 }
@@ -0,0 +1,226 @@
+package com.vonhof.babelshark.language;
+
+import com.vonhof.babelshark.AsyncReader;
+import com.vonhof.babelshark.BabelSharkInstance;
+import com.vonhof.babelshark.Input;
+import com.vonhof.babelshark.Output;
+import com.vonhof.babelshark.RecordIterator;
+import com.vonhof.babelshark.RecordSubscriber;
+import com.vonhof.babelshark.RecordWriter;
+import com.vonhof.babelshark.exception.MappingException;
+import com.vonhof.babelshark.node.ArrayNode;
+import com.vonhof.babelshark.node.ObjectNode;
+import com.vonhof.babelshark.node.ValueNode;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class NdJsonLanguageTest extends TestCase {
+    
+    private static final String NDJSON = "{\"id\":1,\"name\":\"a\"}\n{\"id\":2,\"name\":\"b\"}\n[1,2]\n";
+    
+    private final BabelSharkInstance bs = new BabelSharkInstance();
+    
+    public NdJsonLanguageTest(String testName) {
+        super(testName);
+    }
+    
+    @Override
+    protected void setUp() throws Exception {
+        bs.register(new JsonLanguage());
+        bs.register(new NdJsonLanguage());
+    }
+    
+    public void testCanReadLinesAsArray() throws MappingException, IOException {
+        ArrayNode result = bs.read(new Input(NDJSON, "application/x-ndjson"),ArrayNode.class);
+        assertEquals(3,result.size());
+        assertEquals(new ValueNode("b"),((ObjectNode)result.get(1)).get("name"));
+        assertEquals(2,((ArrayNode)result.get(2)).size());
+    }
+    
+    public void testCanReadLinesAsync() throws Exception {
+        AsyncReader<ArrayNode> reader = bs.readAsync("ndjson", ArrayNode.class);
+        byte[] bytes = NDJSON.getBytes("UTF-8");
+        reader.feed(bytes, 0, 10);
+        reader.feed(bytes, 10, bytes.length - 10);
+        assertFalse(reader.getResult().isDone());
+        reader.endOfInput();
+        
+        assertEquals(bs.read(new Input(NDJSON, "ndjson"),ArrayNode.class), reader.getResult().get());
+    }
+    
+    public void testCanIterateRecords() throws MappingException, IOException {
+        RecordIterator<TestRecord> records = bs.readIterator(new Input("{\"id\":1,\"name\":\"a\"}\n\n{\"id\":2,\"name\":\"b\"}", "ndjson"), TestRecord.class);
+        
+        assertTrue(records.hasNext());
+        TestRecord record = records.next();
+        assertEquals(1,record.id);
+        assertEquals("a",record.name);
+        
+        assertTrue(records.hasNext());
+        assertEquals(2,records.next().id);
+        assertFalse(records.hasNext());
+    }
+    
+    public void testCanStreamRecords() throws MappingException, IOException {
+        RecordIterator<TestRecord> records = bs.readIterator(new Input(NDJSON.substring(0, NDJSON.indexOf('[')), "ndjson"), TestRecord.class);
+        try (Stream<TestRecord> stream = records.stream()) {
+            assertEquals(Arrays.asList("a", "b"), stream.map(record -> record.name).collect(Collectors.toList()));
+        }
+        assertFalse(records.hasNext());
+    }
+    
+    public void testCanWriteRecords() throws MappingException, IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        RecordWriter<Object> writer = bs.openRecordWriter(new Output(stream, "ndjson"));
+        writer.write(new TestRecord(1, "a"));
+        writer.write(new TestRecord(2, "b"));
+        writer.write(Arrays.asList(1,2));
+        writer.close();
+        
+        assertEquals(NDJSON,stream.toString("UTF-8"));
+    }
+    
+    public void testCanWriteListAsLines() throws MappingException, IOException {
+        List<TestRecord> records = Arrays.asList(new TestRecord(1, "a"), new TestRecord(2, "b"));
+        assertEquals("{\"id\":1,\"name\":\"a\"}\n{\"id\":2,\"name\":\"b\"}\n",bs.writeToString(records, "ndjson"));
+        assertEquals("{\"id\":1,\"name\":\"a\"}\n",bs.writeToString(records.get(0), "ndjson"));
+    }
+    
+    public void testCanWriteJsonRecords() throws MappingException, IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        RecordWriter<Object> writer = bs.openRecordWriter(new Output(stream, "json"));
+        writer.write(new TestRecord(1, "a"));
+        writer.write(new TestRecord(2, "b"));
+        writer.close();
+        
+        assertEquals("[{\"id\":1,\"name\":\"a\"},{\"id\":2,\"name\":\"b\"}]",stream.toString("UTF-8"));
+    }
+    
+    public void testCanPublishAndSubscribeRecords() throws Exception {
+        String ndjson = "{\"id\":1,\"name\":\"a\"}\n{\"id\":2,\"name\":\"b\"}\n{\"id\":3,\"name\":\"c\"}\n";
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        RecordSubscriber<TestRecord> subscriber = bs.writeSubscriber(new Output(stream, "json"), 2);
+        bs.readPublisher(new Input(ndjson, "ndjson"), TestRecord.class).subscribe(subscriber);
+        
+        subscriber.getResult().get();
+        assertEquals("[{\"id\":1,\"name\":\"a\"},{\"id\":2,\"name\":\"b\"},{\"id\":3,\"name\":\"c\"}]",stream.toString("UTF-8"));
+    }
+    
+    public void testPublishesOnlyRequestedRecords() throws Exception {
+        final List<TestRecord> received = new ArrayList<TestRecord>();
+        final Flow.Subscription[] subscription = new Flow.Subscription[1];
+        final boolean[] completed = new boolean[1];
+        bs.readPublisher(new Input(NDJSON, "ndjson"), "", TestRecord.class).subscribe(new Flow.Subscriber<TestRecord>() {
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+            }
+            
+            public void onNext(TestRecord item) {
+                received.add(item);
+            }
+            
+            public void onError(Throwable error) {
+                throw new AssertionError(error);
+            }
+            
+            public void onComplete() {
+                completed[0] = true;
+            }
+        });
+        
+        assertTrue(received.isEmpty());
+        subscription[0].request(1);
+        assertEquals(1, received.size());
+        assertEquals("a", received.get(0).name);
+        subscription[0].request(1);
+        assertEquals(2, received.size());
+        assertFalse(completed[0]);
+        
+        subscription[0].cancel();
+        subscription[0].request(5);
+        assertEquals(2, received.size());
+        assertFalse(completed[0]);
+    }
+    
+    public void testSubscriberThatThrowsIsCancelled() throws Exception {
+        final List<TestRecord> received = new ArrayList<TestRecord>();
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        final Flow.Subscription[] subscription = new Flow.Subscription[1];
+        bs.readPublisher(new Input(NDJSON, "ndjson"), "", TestRecord.class).subscribe(new Flow.Subscriber<TestRecord>() {
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+            }
+            
+            public void onNext(TestRecord item) {
+                received.add(item);
+                throw new IllegalStateException("Subscriber failed");
+            }
+            
+            public void onError(Throwable error) {
+                errors.add(error);
+            }
+            
+            public void onComplete() {
+                throw new AssertionError("Should not complete");
+            }
+        });
+        
+        subscription[0].request(5);
+        assertEquals(1, received.size());
+        assertTrue(errors.isEmpty());
+        
+        subscription[0].request(5);
+        assertEquals(1, received.size());
+        assertTrue(errors.isEmpty());
+    }
+    
+    public void testFailedPublisherDoesNotCompleteOutput() throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        RecordSubscriber<TestRecord> subscriber = bs.writeSubscriber(new Output(stream, "json"));
+        final IOException error = new IOException("Publisher failed");
+        subscriber.onSubscribe(new Flow.Subscription() {
+            public void request(long n) {
+                
+            }
+            
+            public void cancel() {
+                
+            }
+        });
+        subscriber.onNext(new TestRecord(1, "a"));
+        subscriber.onError(error);
+        
+        try {
+            subscriber.getResult().get();
+            fail("Result should fail");
+        } catch (ExecutionException ex) {
+            assertSame(error, ex.getCause());
+        }
+        assertEquals("[{\"id\":1,\"name\":\"a\"}", stream.toString("UTF-8"));
+    }
+    
+    public static class TestRecord {
+        public int id;
+        public String name;
+
+        public TestRecord() {
+        }
+
+        public TestRecord(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
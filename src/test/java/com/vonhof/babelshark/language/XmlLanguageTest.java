@@ -2,6 +2,7 @@ package com.vonhof.babelshark.language;
 
 import com.vonhof.babelshark.BabelShark;
 import com.vonhof.babelshark.Input;
+import com.vonhof.babelshark.RecordIterator;
 import com.vonhof.babelshark.exception.MappingException;
 import com.vonhof.babelshark.node.ArrayNode;
 import com.vonhof.babelshark.node.ObjectNode;
@@ -47,6 +48,35 @@ public class XmlLanguageTest extends TestCase {
         assertEquals(new ValueNode("123"),result.get("visits"));
     }
     
+    public void testFieldNamesAreSharedBetweenDocuments() throws MappingException, IOException {
+        ObjectNode first = BabelShark.read(new Input(XML_OBJECT, "xml"), ObjectNode.class);
+        ObjectNode second = BabelShark.read(new Input(XML_OBJECT, "xml"), ObjectNode.class);
+        assertSame(first.getFields().iterator().next(), second.getFields().iterator().next());
+        assertSame("id", first.getFields().iterator().next());
+    }
+
+    public void testCanReadNestedXml() throws MappingException, IOException {
+        Input input = new Input(XML_VERSION+"<out>\n"
+                + "  <items><item><id>1</id><name>a</name></item><item><id>2</id><name><![CDATA[b & c]]></name></item></items>\n"
+                + "  <single><entry>x</entry></single>\n"
+                + "  <empty/>\n"
+                + "  <mixed><a>1</a><b>2</b><a>3</a></mixed>\n"
+                + "</out>", "xml");
+        ObjectNode result = BabelShark.read(input,ObjectNode.class);
+        
+        ArrayNode items = result.getArray("items");
+        assertEquals(2,items.size());
+        assertEquals(new ValueNode("1"),((ObjectNode)items.get(0)).get("id"));
+        assertEquals(new ValueNode("b & c"),((ObjectNode)items.get(1)).get("name"));
+        
+        ArrayNode single = result.getArray("single");
+        assertEquals(1,single.size());
+        assertEquals(new ValueNode("x"),single.get(0));
+        
+        assertEquals(new ValueNode(null),result.get("empty"));
+        assertEquals(new ValueNode(null),result.get("mixed"));
+    }
+    
     
     public void testCanWriteSimpleXml() throws MappingException, IOException {
         ArrayNode array = new ArrayNode();
@@ -66,4 +96,28 @@ public class XmlLanguageTest extends TestCase {
         String xml = BabelShark.writeToString(obj,"xml");
         assertEquals(XML_OBJECT,xml);
     }
+    
+    public void testCanWriteXmlAttributesAndEmptyElements() throws MappingException, IOException {
+        ObjectNode obj = new ObjectNode();
+        obj.put("name","a < b & c");
+        obj.put("type","test").setAttribute(true);
+        obj.put("id","1").setAttribute(true);
+        obj.putArray("list");
+        ArrayNode entries = obj.putArray("entries");
+        entries.addObject().put("key","x").setAttribute(true);
+        
+        String xml = BabelShark.writeToString(obj,"xml");
+        assertEquals(XML_VERSION+"<out id=\"1\" type=\"test\"><name>a &lt; b &amp; c</name><list/>"
+                + "<entries><entry key=\"x\"/></entries></out>",xml);
+    }
+    
+    public void testCanIterateXmlEntries() throws MappingException, IOException {
+        Input input = new Input(XML_VERSION+"<out><count>2</count><items><entry><id>1</id><name>a</name></entry>"
+                + "<entry><id>2</id><name>b</name></entry></items></out>", "xml");
+        RecordIterator<ObjectNode> it = BabelShark.readIterator(input, "items", ObjectNode.class);
+        
+        assertEquals("a",it.next().getString("name"));
+        assertEquals("b",it.next().getString("name"));
+        assertFalse(it.hasNext());
+    }
 }
@@ -0,0 +1,63 @@
+package com.vonhof.babelshark.node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class ObjectNodeTest extends TestCase {
+    
+    public ObjectNodeTest(String testName) {
+        super(testName);
+    }
+    
+    public void testKeepsInsertionOrder() {
+        ObjectNode node = new ObjectNode();
+        node.put("b", 1);
+        node.put("a", 2);
+        node.put("c", 3);
+        node.put("a", 4);
+        
+        assertEquals(Arrays.asList("b","a","c"), new ArrayList<String>(node.getFields()));
+        assertEquals(4, node.getInt("a"));
+        assertEquals("{b=1,a=4,c=3}", node.toString());
+    }
+    
+    public void testCanGetAndRemoveFieldsOfLargeObjects() {
+        ObjectNode node = new ObjectNode();
+        List<String> expected = new ArrayList<String>();
+        for(int i = 0; i < 40; i++) {
+            node.put("field" + i, i);
+            expected.add("field" + i);
+        }
+        assertEquals(40, node.getFields().size());
+        assertEquals(25, node.getInt("field25"));
+        
+        node.remove("field3", "field30", "unknown");
+        expected.remove("field3");
+        expected.remove("field30");
+        assertNull(node.get("field3"));
+        assertEquals(31, node.getInt("field31"));
+        assertEquals(expected, new ArrayList<String>(node.getFields()));
+        assertEquals(38, node.toMap().size());
+    }
+    
+    public void testEqualsIgnoresFieldOrder() {
+        ObjectNode a = new ObjectNode();
+        a.put("x", 1);
+        a.put("y", "test");
+        ObjectNode b = new ObjectNode();
+        b.put("y", "test");
+        b.put("x", 1);
+        
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        
+        b.put("x", 2);
+        assertFalse(a.equals(b));
+    }
+}
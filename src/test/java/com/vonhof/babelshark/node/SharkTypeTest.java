@@ -4,8 +4,10 @@
  */
 package com.vonhof.babelshark.node;
 
+import com.vonhof.babelshark.RedeployedBean;
 import com.vonhof.babelshark.reflect.ClassInfo;
 import com.vonhof.babelshark.reflect.FieldInfo;
+import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -48,6 +50,27 @@ public class SharkTypeTest extends TestCase {
         return null;
     }
     
+    public void testTypesAreCanonical() {
+        assertSame(SharkType.get(String.class),SharkType.get(String.class));
+        assertSame(SharkType.forCollection(List.class,String.class),SharkType.forCollection(List.class,String.class));
+        assertSame(SharkType.get(getField("map")),SharkType.get(getField("map")));
+        assertNotSame(SharkType.forCollection(List.class,String.class),SharkType.forCollection(List.class,Integer.class));
+        assertNotSame(SharkType.forCollection(List.class,String.class),SharkType.forMap(List.class,String.class));
+    }
+    
+    public void testTypesDoNotKeepClassLoaders() throws Exception {
+        WeakReference<ClassLoader> loader = useTypesOfNewLoader();
+        assertTrue(RedeployedBean.isCollected(loader));
+    }
+    
+    private WeakReference<ClassLoader> useTypesOfNewLoader() throws Exception {
+        Class clz = RedeployedBean.loadInNewLoader();
+        SharkType type = SharkType.get(List.class, clz);
+        assertSame(type, SharkType.get(List.class, clz));
+        assertSame(clz, SharkType.forMap(Map.class, type).getValueType().getValueType().getType());
+        return new WeakReference<ClassLoader>(clz.getClassLoader());
+    }
+    
     public void testDeeplyNestedMaps() {
         SharkType type = SharkType.get(getField("map"));
         
@@ -0,0 +1,46 @@
+package com.vonhof.babelshark.node;
+
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class ValueNodeTest extends TestCase {
+
+    public ValueNodeTest(String testName) {
+        super(testName);
+    }
+
+    public void testPrimitiveNodesEqualBoxedNodes() {
+        assertEquals(new ValueNode(5), ValueNode.of(5));
+        assertEquals(new ValueNode(5L), ValueNode.of(5L));
+        assertEquals(new ValueNode(1.5D), ValueNode.of(1.5D));
+        assertEquals(new ValueNode(true), ValueNode.of(true));
+        assertEquals(new ValueNode(5).hashCode(), ValueNode.of(5).hashCode());
+        assertEquals(new ValueNode(-5L).hashCode(), ValueNode.of(-5L).hashCode());
+        assertEquals(new ValueNode(1.5D).hashCode(), ValueNode.of(1.5D).hashCode());
+        assertEquals(new ValueNode(false).hashCode(), ValueNode.of(false).hashCode());
+
+        assertFalse(ValueNode.of(5).equals(ValueNode.of(5L)));
+    }
+
+    public void testCanReadPrimitiveValues() {
+        assertEquals(int.class, ValueNode.of(5).getPrimitiveType());
+        assertEquals(5L, ValueNode.of(5).getLong());
+        assertEquals(1.5D, ValueNode.of(1.5D).getDouble());
+        assertEquals(1, ValueNode.of(1.5D).getInt());
+        assertTrue(ValueNode.of(true).getBoolean());
+        assertEquals(Integer.valueOf(5), ValueNode.of(5).getValue());
+        assertEquals("1.5", ValueNode.of(1.5D).toString());
+
+        ValueNode<Integer> boxed = new ValueNode<Integer>(7);
+        assertNull(boxed.getPrimitiveType());
+        assertEquals(7L, boxed.getLong());
+
+        ValueNode<Integer> changed = ValueNode.of(5);
+        changed.setValue(8);
+        assertNull(changed.getPrimitiveType());
+        assertEquals(8, changed.getInt());
+    }
+}
@@ -0,0 +1,113 @@
+package com.vonhof.babelshark.processor;
+
+import com.vonhof.babelshark.BabelSharkInstance;
+import com.vonhof.babelshark.Input;
+import com.vonhof.babelshark.SharkSerializer;
+import com.vonhof.babelshark.annotation.GenerateConverter;
+import com.vonhof.babelshark.annotation.Ignore;
+import com.vonhof.babelshark.annotation.Name;
+import com.vonhof.babelshark.exception.MappingException;
+import com.vonhof.babelshark.language.JsonLanguage;
+import com.vonhof.babelshark.node.ObjectNode;
+import com.vonhof.babelshark.node.SharkNode;
+import com.vonhof.babelshark.node.ValueNode;
+import com.vonhof.babelshark.reflect.ClassInfo;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Henrik Hofmeister <@vonhofdk>
+ */
+public class ConverterProcessorTest extends TestCase {
+    
+    private static final String JSON = "{\"_id\":\"1\",\"name\":\"some name\",\"count\":3,\"active\":true,"
+            + "\"tags\":[\"a\",\"b\"],\"values\":{\"x\":1}}";
+    
+    private final BabelSharkInstance bs = new BabelSharkInstance();
+    
+    public ConverterProcessorTest(String testName) {
+        super(testName);
+    }
+    
+    @Override
+    protected void setUp() throws Exception {
+        bs.register(new JsonLanguage());
+    }
+    
+    public void testGeneratedConverterIsRegistered() throws Exception {
+        assertEquals(ConverterProcessorTest_TestBeanSharkConverter.class,bs.getSerializer(TestBean.class).getClass());
+        assertEquals(ConverterProcessorTest_TestBeanSharkConverter.class,bs.getDeserializer(
+                com.vonhof.babelshark.node.SharkType.get(TestBean.class)).getClass());
+    }
+    
+    public void testCanReadAndWriteWithGeneratedConverter() throws Exception {
+        TestBean bean = bs.read(new Input(JSON, "json"),TestBean.class);
+        assertEquals("1",bean.id);
+        assertEquals("some name",bean.getName());
+        assertEquals(3,bean.count);
+        assertTrue(bean.active);
+        assertEquals(2,bean.tags.size());
+        assertEquals(Integer.valueOf(1),bean.values.get("x"));
+        
+        bean.ignored = "ignored";
+        assertEquals(JSON,bs.writeToString(bean,"json"));
+        
+        ObjectNode node = (ObjectNode) bs.write(bean);
+        assertEquals("some name",node.getString("name"));
+        assertNull(node.get("ignored"));
+        assertEquals("some name",bs.read(node,TestBean.class).getName());
+    }
+    
+    public void testGeneratedConverterUsesCustomPrimitiveConverters() throws Exception {
+        TestBean bean = bs.read(new Input(JSON, "json"),TestBean.class);
+        bs.register(Boolean.class, new SharkSerializer<Boolean>() {
+            public SharkNode serialize(BabelSharkInstance bs, Boolean value) throws MappingException {
+                return new ValueNode(value ? "yes" : "no");
+            }
+        });
+        
+        String json = JSON.replace("\"active\":true", "\"active\":\"yes\"");
+        assertEquals(json,bs.writeToString(bean,"json"));
+        assertEquals(json,bs.writeToString(bs.write(bean),"json"));
+    }
+    
+    public void testGeneratedConverterDoesNotScanBean() throws Exception {
+        BabelSharkInstance bs = new BabelSharkInstance();
+        bs.register(new JsonLanguage());
+        ColdBean bean = bs.read(new Input("{\"name\":\"a\",\"count\":1}", "json"),ColdBean.class);
+        assertEquals("{\"name\":\"a\",\"count\":1}",bs.writeToString(bean,"json"));
+        
+        assertFalse(ClassInfo.from(ColdBean.class).isReady());
+    }
+    
+    @GenerateConverter
+    public static class TestBean {
+        @Name("_id")
+        public String id;
+        private String name;
+        public int count;
+        public boolean active;
+        public List<String> tags = new ArrayList<String>();
+        public Map<String,Integer> values = new LinkedHashMap<String, Integer>();
+        @Ignore
+        public String ignored;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+    
+    @GenerateConverter
+    public static class ColdBean {
+        public String name;
+        public int count;
+    }
+}
@@ -168,6 +168,23 @@ public class ClassInfoTest extends TestCase {
     }
     
     
+    public void test_caches_by_class_and_generic_types() throws Exception {
+        assertSame(ClassInfo.from(CrazyBean.class), ClassInfo.from(CrazyBean.class));
+        assertSame(ClassInfo.from(CrazyBean.class), ClassInfo.from(CrazyBean.class, new java.lang.reflect.Type[0]));
+        
+        ClassInfo stringList = ClassInfo.from(List.class, new java.lang.reflect.Type[]{String.class});
+        ClassInfo integerList = ClassInfo.from(List.class, new java.lang.reflect.Type[]{Integer.class});
+        assertSame(stringList, ClassInfo.from(List.class, new java.lang.reflect.Type[]{String.class}));
+        assertNotSame(stringList, integerList);
+        assertEquals(String.class, stringList.getCollectionType());
+        assertEquals(Integer.class, integerList.getCollectionType());
+        
+        //Members are read on first use
+        assertFalse(stringList.isReady());
+        assertFalse(stringList.getMethods().isEmpty());
+        assertTrue(stringList.isReady());
+    }
+
     public void test_concurrent_reading() throws InterruptedException {
         final ConcurrentLinkedQueue<String> results = new ConcurrentLinkedQueue<String>();
         Runnable r1 = new Runnable() {